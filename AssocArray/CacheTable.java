@@ -0,0 +1,191 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache on HashTable.
+ *
+ * It holds at most maxSize entries.  When it is full, the CLOCK algorithm
+ * chooses the victim: the hand sweeps over the slots, giving a second chance
+ * to each entry whose reference bit was set by get since the last sweep.
+ * The reference bit and the expiry time are fields of the entries, so they
+ * survive rehashing.  The slot array is sized so that it never grows.
+ */
+public class CacheTable<K, V> extends HashTable<K, V> {
+
+    static class CacheEntry<K, V> extends SimpleEntry<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        boolean referenced = false;
+        long expiresAt;
+
+        CacheEntry(K key, V value, long expiresAt) {
+            super(key, value);
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final int maxSize_;
+    private final long ttl_;        // in nanoseconds; 0 means no expiry
+    private int hand_ = 0;
+
+    private long hits_ = 0;
+    private long misses_ = 0;
+    private long evictions_ = 0;
+
+    public CacheTable(int maxSize, long ttl, TimeUnit unit) {
+        // count_ stays below capacity() / 4, so rehashing only compacts.
+        super(4 * maxSize + 1);
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("maxSize: " + maxSize);
+        maxSize_ = maxSize;
+        ttl_ = unit.toNanos(ttl);
+    }
+
+    public CacheTable(int maxSize) {
+        this(maxSize, 0, TimeUnit.NANOSECONDS);
+    }
+
+    public int maxSize() {
+        return maxSize_;
+    }
+
+    public long hitCount() {
+        return hits_;
+    }
+
+    public long missCount() {
+        return misses_;
+    }
+
+    public long evictionCount() {
+        return evictions_;
+    }
+
+    private long deadline() {
+        return ttl_ > 0 ? System.nanoTime() + ttl_ : Long.MAX_VALUE;
+    }
+
+    private boolean expired(CacheEntry<K, V> entry) {
+        return ttl_ > 0 && System.nanoTime() - entry.expiresAt > 0;
+    }
+
+    @Override
+    protected SimpleEntry<K, V> newEntry(K key, V value) {
+        return new CacheEntry<>(key, value, deadline());
+    }
+
+    // finds a live entry, dropping it if it has expired
+    private CacheEntry<K, V> lookup(Object key) {
+        CacheEntry<K, V> entry = (CacheEntry<K, V>)find(key);
+        if (entry != null && expired(entry)) {
+            remove(key);
+            evictions_++;
+            return null;
+        }
+        return entry;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return lookup(key) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        return getOrDefault(key, null);
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        CacheEntry<K, V> entry = lookup(key);
+        if (entry == null) {
+            misses_++;
+            return defaultValue;
+        }
+        hits_++;
+        entry.referenced = true;
+        return entry.getValue();
+    }
+
+    @Override
+    public V put(K key, V value) {
+        CacheEntry<K, V> entry = lookup(key);
+        if (entry != null) {
+            entry.referenced = true;
+            entry.expiresAt = deadline();
+            return entry.setValue(value);
+        }
+
+        if (size() >= maxSize_)
+            evict();
+        return super.put(key, value);
+    }
+
+    // The slots are sized for maxSize entries once and for all, so putAll
+    // does not make room beforehand; each entry goes through put, which
+    // evicts another when the cache is full.
+    @Override
+    public void ensureCapacity(int n) {
+    }
+
+    // The hand goes round at most twice: once clearing the reference bits
+    // and once more finding an entry without it.
+    private void evict() {
+        for (;;) {
+            SimpleEntry<K, V> slot = table_[hand_];
+            hand_ = (hand_ + 1) & (capacity() - 1);
+            if (slot == null || slot.getKey() == null)
+                continue;
+
+            CacheEntry<K, V> entry = (CacheEntry<K, V>)slot;
+            if (entry.referenced && ! expired(entry)) {
+                entry.referenced = false;
+                continue;
+            }
+            remove(entry.getKey());
+            evictions_++;
+            return;
+        }
+    }
+
+    /** Removes all the expired entries. */
+    public void purge() {
+        for (int i = 0; i < capacity(); i++) {
+            SimpleEntry<K, V> slot = table_[i];
+            if (slot != null && slot.getKey() != null && expired((CacheEntry<K, V>)slot)) {
+                remove(slot.getKey());
+                evictions_++;
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        CacheTable<Integer, Long> fib = new CacheTable<>(64);
+        for (int round = 0; round < 3; round++) {
+            for (int n = 0; n < 100; n++) {
+                Long x = fib.get(n);
+                if (x == null)
+                    fib.put(n, n < 2 ? (long)n : fib.getOrDefault(n - 1, 0L) + fib.getOrDefault(n - 2, 0L));
+            }
+        }
+        System.out.printf("size: %d, capacity: %d, hits: %d, misses: %d, evictions: %d%n",
+                          fib.size(), fib.capacity(), fib.hitCount(), fib.missCount(), fib.evictionCount());
+
+        java.util.Map<Integer, Long> more = new java.util.HashMap<>();
+        for (int n = 100; n < 1000; n++) {
+            more.put(n, (long)n);
+        }
+        fib.putAll(more);
+        System.out.printf("after putAll of %d: size: %d, capacity: %d, evictions: %d%n",
+                          more.size(), fib.size(), fib.capacity(), fib.evictionCount());
+
+        CacheTable<String, String> session = new CacheTable<>(10, 50, TimeUnit.MILLISECONDS);
+        session.put("user", "alice");
+        System.out.println(session.get("user"));
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            return;
+        }
+        System.out.println(session.get("user") + " evictions: " + session.evictionCount());
+    }
+}
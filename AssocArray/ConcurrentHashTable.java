@@ -0,0 +1,362 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Open addressing hash table shared by threads.
+ *
+ * The slots are split into stripes; every stripe is an independent
+ * table with its own lock, and it is resized alone while the other stripes
+ * keep working.  Writers hold the lock of their stripe.  Readers never lock:
+ * a slot holds an immutable Node, published with a release store and read
+ * with an acquire load, and a resize publishes a new slot array at once.
+ *
+ * Neither null keys nor null values are allowed.
+ */
+public class ConcurrentHashTable<K, V> extends AbstractMap<K, V> {
+    static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    // the mark of a removed slot; searching must go on beyond it
+    static final Object REMOVED = new Object();
+
+    static final class Node<K, V> {
+        final int hash;
+        final K key;
+        final V value;
+
+        Node(int hash, K key, V value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    static final class Stripe extends ReentrantLock {
+        private static final long serialVersionUID = 1L;
+
+        volatile Object[] slots;
+        volatile int count = 0;
+        int used = 0;               // live nodes + removed slots, guarded by the lock
+
+        Stripe(int n) {
+            slots = new Object[n];
+        }
+    }
+
+    private final Stripe[] stripes_;
+    private final int stripeShift;
+
+    public ConcurrentHashTable(int n, int concurrency) {
+        int nStripes = powerOfTwo(concurrency);
+        stripes_ = new Stripe[nStripes];
+        stripeShift = 32 - Integer.numberOfTrailingZeros(nStripes);
+        int perStripe = powerOfTwo(2 * n / nStripes);
+        for (int i = 0; i < nStripes; i++) {
+            stripes_[i] = new Stripe(perStripe);
+        }
+    }
+
+    public ConcurrentHashTable(int n) {
+        this(n, 64);
+    }
+
+    public ConcurrentHashTable() {
+        this(16);
+    }
+
+    static int powerOfTwo(int n) {
+        int cap = 8;
+        while (cap < n)
+            cap <<= 1;
+        return cap;
+    }
+
+    static int spread(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    protected int hash(int h) {
+        return h & 0x3FFFFFFF;
+    }
+    protected int hash2(int h) {
+        return (h >>> 16) | 1;
+    }
+
+    // The upper bits choose the stripe, the lower bits the slot in it.
+    private Stripe stripeOf(int h) {
+        return stripes_[stripeShift == 32 ? 0 : h >>> stripeShift];
+    }
+
+    @Override
+    public int size() {
+        int n = 0;
+        for (Stripe s: stripes_) {
+            n += s.count;
+        }
+        return n;
+    }
+
+    public int capacity() {
+        int n = 0;
+        for (Stripe s: stripes_) {
+            n += s.slots.length;
+        }
+        return n;
+    }
+
+    @Override
+    public void clear() {
+        for (Stripe s: stripes_) {
+            s.lock();
+            try {
+                s.slots = new Object[s.slots.length];
+                s.used = 0;
+                s.count = 0;
+            } finally {
+                s.unlock();
+            }
+        }
+    }
+
+    Node<K, V> searchGET(Object key) {
+        int h = spread(key);
+        Object[] slots = stripeOf(h).slots;
+        int mask = slots.length - 1;
+        int ix = hash(h) & mask;
+        int step = hash2(h);
+        for (int i = 0; i <= mask; i++) {
+            Object o = SLOT.getAcquire(slots, ix);
+            if (o == null)
+                return null;
+            if (o != REMOVED) {
+                Node<K, V> node = (Node<K, V>)o;
+                if (node.hash == h && key.equals(node.key))
+                    return node;
+            }
+            ix = (ix + step) & mask;
+        }
+        return null;
+    }
+
+    // Under the lock of the stripe: returns the slot of KEY, or the first
+    // free slot on its probe sequence as (-1 - ix).
+    private int searchPUT(Object[] slots, int h, Object key) {
+        int mask = slots.length - 1;
+        int ix = hash(h) & mask;
+        int step = hash2(h);
+        int free = -1;
+        for (;;) {
+            Object o = slots[ix];
+            if (o == null)
+                return -1 - (free >= 0 ? free : ix);
+            if (o == REMOVED) {
+                if (free < 0)
+                    free = ix;
+            }
+            else {
+                Node<K, V> node = (Node<K, V>)o;
+                if (node.hash == h && key.equals(node.key))
+                    return ix;
+            }
+            ix = (ix + step) & mask;
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return searchGET(key) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        Node<K, V> node = searchGET(key);
+        return node != null ? node.value : null;
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        Node<K, V> node = searchGET(key);
+        return node != null ? node.value : defaultValue;
+    }
+
+    private V put(K key, V value, boolean onlyIfAbsent) {
+        if (value == null)
+            throw new NullPointerException();
+
+        int h = spread(key);
+        Stripe s = stripeOf(h);
+        s.lock();
+        try {
+            Object[] slots = s.slots;
+            if (s.used >= slots.length / 2)
+                slots = rehash(s);
+
+            int ix = searchPUT(slots, h, key);
+            if (ix >= 0) {
+                V before = ((Node<K, V>)slots[ix]).value;
+                if (! onlyIfAbsent)
+                    SLOT.setRelease(slots, ix, new Node<>(h, key, value));
+                return before;
+            }
+
+            ix = -1 - ix;
+            if (slots[ix] == null)
+                s.used++;
+            SLOT.setRelease(slots, ix, new Node<>(h, key, value));
+            s.count++;
+            return null;
+        } finally {
+            s.unlock();
+        }
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return put(key, value, false);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return put(key, value, true);
+    }
+
+    @Override
+    public V remove(Object key) {
+        int h = spread(key);
+        Stripe s = stripeOf(h);
+        s.lock();
+        try {
+            Object[] slots = s.slots;
+            int ix = searchPUT(slots, h, key);
+            if (ix < 0)
+                return null;
+
+            V result = ((Node<K, V>)slots[ix]).value;
+            SLOT.setRelease(slots, ix, REMOVED);
+            s.count--;
+            return result;
+        } finally {
+            s.unlock();
+        }
+    }
+
+    // Under the lock of the stripe: builds a new slot array and publishes it.
+    // Readers still holding the old array see the state before the rehash.
+    private Object[] rehash(Stripe s) {
+        Object[] backup = s.slots;
+        int n = s.count >= backup.length / 4 ? 2 * backup.length : backup.length;
+        Object[] slots = new Object[n];
+
+        for (Object o: backup) {
+            if (o == null || o == REMOVED)
+                continue;
+            Node<K, V> node = (Node<K, V>)o;
+            slots[-1 - searchPUT(slots, node.hash, node.key)] = node;
+        }
+        s.used = s.count;
+        s.slots = slots;
+        return slots;
+    }
+
+    // Weakly consistent: it reflects each stripe as of the moment it gets there.
+    class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private int stripe = -1;
+        private Object[] slots = new Object[0];
+        private int ix = 0;
+        private Node<K, V> next;
+        private Node<K, V> last;
+
+        EntryIterator() {
+            findNext();
+        }
+
+        private void findNext() {
+            for (;;) {
+                while (ix < slots.length) {
+                    Object o = SLOT.getAcquire(slots, ix++);
+                    if (o != null && o != REMOVED) {
+                        next = (Node<K, V>)o;
+                        return;
+                    }
+                }
+                if (++stripe >= stripes_.length) {
+                    next = null;
+                    return;
+                }
+                slots = stripes_[stripe].slots;
+                ix = 0;
+            }
+        }
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        public Map.Entry<K, V> next() {
+            if (! hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            last = next;
+            findNext();
+            return new SimpleEntry<K, V>(last.key, last.value) {
+                @Override
+                public V setValue(V value) {
+                    super.setValue(value);
+                    return ConcurrentHashTable.this.put(getKey(), value);
+                }
+            };
+        }
+
+        public void remove() {
+            if (last == null)
+                throw new IllegalStateException();
+            ConcurrentHashTable.this.remove(last.key);
+            last = null;
+        }
+    }
+
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            public int size() {
+                return ConcurrentHashTable.this.size();
+            }
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator();
+            }
+        };
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        ConcurrentHashTable<Integer, Integer> table = new ConcurrentHashTable<>();
+        int nThreads = Runtime.getRuntime().availableProcessors();
+        int perThread = 100000;
+
+        Thread[] workers = new Thread[nThreads];
+        for (int t = 0; t < nThreads; t++) {
+            final int base = t * perThread;
+            workers[t] = new Thread(() -> {
+                for (int i = base; i < base + perThread; i++) {
+                    table.put(i, i);
+                    if (i % 2 == 1)
+                        table.remove(i);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w: workers) {
+            w.join();
+        }
+
+        long sum = 0;
+        for (int v: table.values()) {
+            sum += v;
+        }
+        System.out.printf("threads: %d, size: %d, capacity: %d, sum: %d%n",
+                          nThreads, table.size(), table.capacity(), sum);
+        System.out.println(table.get(42) + " " + table.get(43));
+    }
+}
@@ -1,23 +1,52 @@
 import java.util.*;
+import java.util.function.*;
 
 public class HashTable<K, V> extends AbstractMap<K, V> {
     protected SimpleEntry<K, V>[] table_;
     protected int count_ = 0;
+    protected int removed_ = 0;     // dummy entries in table_
     private HashTable<K, V> self = this;
 
+    // In the incremental mode, rehashing allocates a new table_ and keeps
+    // the former one as old_.  Every put/remove moves MIGRATE_STEP slots
+    // old_[migrated_..] into table_, and lookups search both until it ends.
+    protected final boolean incremental_;
+    protected SimpleEntry<K, V>[] old_ = null;
+    protected int migrated_ = 0;
+    static final int MIGRATE_STEP = 4;
+
+    // SimpleEntry(null, null), exactly SimpleEntry of which the key is null,
+    // is the dummy entry that had been removed.
+    static final SimpleEntry REMOVED = new SimpleEntry<>(null, null);
+
+    public HashTable(int n, boolean incremental) {
+        table_ = (SimpleEntry<K, V>[])new SimpleEntry[powerOfTwo(n)];
+        incremental_ = incremental;
+    }
+
     public HashTable(int n) {
-        table_ = (SimpleEntry<K, V>[])new SimpleEntry[n];
+        this(n, false);
     }
 
     public HashTable() {
         this(10);
     }
 
+    // The capacity is a power of 2 and hash2 is odd, so that the probe
+    // sequence visits every slot and always reaches an empty one.
+    static int powerOfTwo(int n) {
+        int cap = 8;
+        while (cap < n)
+            cap <<= 1;
+        return cap;
+    }
+
     protected int hash(Object key) {
-        return key.hashCode() & 0x3FFFFFFF;
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & 0x3FFFFFFF;
     }
     protected int hash2(Object key) {
-        return (key.hashCode() >>> 16) + 7;
+        return (key.hashCode() >>> 16) | 1;
     }
 
     @Override
@@ -34,110 +63,171 @@ public class HashTable<K, V> extends AbstractMap<K, V> {
         for (int i = 0; i < capacity(); i++) {
             table_[i] = null;
         }
+        old_ = null;
         count_ = 0;
+        removed_ = 0;
     }
 
-    final int MAX_RETRY = 10;
-
-    int searchGET(Object key) {
-        int ix = hash(key) % capacity();
-        for (int i = 0; i < MAX_RETRY; i++) {
-            if (table_[ix] == null)
+    int searchGET(SimpleEntry<K, V>[] table, Object key) {
+        int mask = table.length - 1;
+        int ix = hash(key) & mask;
+        int step = hash2(key);
+        for (int i = 0; i < table.length; i++) {
+            if (table[ix] == null)
                 return -1;
             else {
-                K k = table_[ix].getKey();
+                K k = table[ix].getKey();
                 if (k != null && k.equals(key)) 
                     return ix;
                
             }
-            ix = (ix + hash2(key)) % capacity();
+            ix = (ix + step) & mask;
         }
-        throw new RuntimeException("Hashkey loop");
+        return -1;
     }
 
-    int searchPUT(K key) {
-        int ix = hash(key) % capacity();
+    int searchGET(Object key) {
+        return searchGET(table_, key);
+    }
 
-        for (int i = 0; i < MAX_RETRY; i++) {
-            if (table_[ix] == null)
-                return ix;
+    // returns the index of KEY, or else the first dummy or empty slot
+    // on its probe sequence
+    int searchPUT(SimpleEntry<K, V>[] table, K key) {
+        int mask = table.length - 1;
+        int ix = hash(key) & mask;
+        int step = hash2(key);
+        int free = -1;
+
+        for (int i = 0; i < table.length; i++) {
+            if (table[ix] == null)
+                return free >= 0 ? free : ix;
             else {
-                K k = table_[ix].getKey();
-                if (k == null || k.equals(key))
+                K k = table[ix].getKey();
+                if (k == null) {
+                    if (free < 0)
+                        free = ix;
+                }
+                else if (k.equals(key))
                     return ix;
             }
-            ix = (ix + hash2(key)) % capacity();
+            ix = (ix + step) & mask;
         }
-        return -1;
+        return free;
+    }
+
+    int searchPUT(K key) {
+        return searchPUT(table_, key);
+    }
+
+    // Subclasses may keep extra data in the entries.
+    protected SimpleEntry<K, V> newEntry(K key, V value) {
+        return new SimpleEntry<>(key, value);
+    }
+
+    SimpleEntry<K, V> find(Object key) {
+        int ix = searchGET(table_, key);
+        if (ix >= 0)
+            return table_[ix];
+
+        if (old_ != null) {
+            ix = searchGET(old_, key);
+            if (ix >= 0)
+                return old_[ix];
+        }
+        return null;
     }
 
     @Override
     public boolean containsKey(Object key) {
-        return searchGET(key) >= 0;
+        return find(key) != null;
     }
 
     @Override
     public V get(Object key) {
-        int ix = searchGET(key);
-        if (ix >= 0)
-            return table_[ix].getValue();
+        SimpleEntry<K, V> entry = find(key);
+        if (entry != null)
+            return entry.getValue();
         else
             return null;
     }
 
     @Override
     public V getOrDefault(Object key, V defaultValue) {
-        int ix = searchGET(key);
-        if (ix >= 0)
-            return table_[ix].getValue();
+        SimpleEntry<K, V> entry = find(key);
+        if (entry != null)
+            return entry.getValue();
         else
             return defaultValue;
     }
 
     @Override
     public V put(K key, V value) {
-        if (size() > capacity() / 2)
-            rehash();
-
-        int ix = searchPUT(key);
-        if (ix >= 0) {
-            V result = get(key);
+        if (old_ != null)
+            migrate();
 
-            if (table_[ix] == null)
-                table_[ix] = new SimpleEntry<>(key, value);
+        // Dummy entries occupy slots as well as live ones.
+        if (count_ + removed_ >= capacity() / 2) {
+            if (incremental_)
+                startRehash();
             else
-                table_[ix].setValue(value);
+                rehash();
+        }
 
-            count_++;
-            return result;
+        int ix = searchPUT(key);
+        if (table_[ix] != null) {
+            if (table_[ix].getKey() != null)
+                return table_[ix].setValue(value);
+            removed_--;
         }
-        else {
-            System.err.println("Emergency rehash:" + key + ", " + value);
-            rehash();
-            put(key, value);
-            return null;
+
+        V result = null;
+        if (old_ != null) {
+            int ox = searchGET(old_, key);
+            if (ox >= 0) {
+                result = old_[ox].getValue();
+                old_[ox] = REMOVED;
+                count_--;
+            }
         }
+        table_[ix] = newEntry(key, value);
+        count_++;
+        return result;
     }
 
-    @Override
-    public V remove(Object key) {
-        int ix = searchGET(key);
+    private V remove(SimpleEntry<K, V>[] table, Object key) {
+        int ix = searchGET(table, key);
         if (ix >= 0) {
-            V result = table_[ix].getValue();
-            table_[ix] = new SimpleEntry<>(null, null);
-            // SimpleEnty(null, null), exactly SimpleEnty of which the key is null,
-            // is the dummy entry that had been removed.
+            V result = table[ix].getValue();
+            table[ix] = REMOVED;
             // The method searchGET must search following entries
             // and searchPUT returns the index to the entry to register.
+            count_--;
+            if (table == table_)
+                removed_++;
             return result;
         }
         else {
             return null;
         }
+    }
 
+    @Override
+    public V remove(Object key) {
+        if (old_ != null)
+            migrate();
+
+        if (searchGET(table_, key) < 0 && old_ != null)
+            return remove(old_, key);
+        else
+            return remove(table_, key);
+    }
+
+    public int removedCount() {
+        return removed_;
     }
 
     class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private SimpleEntry<K, V>[] table = old_ != null ? old_ : table_;
         private int ix = 0;
         
         EntryIterator() {
@@ -145,15 +235,21 @@ public class HashTable<K, V> extends AbstractMap<K, V> {
         }
 
         private void findNext() {
-            while (ix < table_.length &&
-                   (table_[ix] == null ||
-                    table_[ix].getKey() == null)) {
-                ix++;
+            for (;;) {
+                while (ix < table.length &&
+                       (table[ix] == null ||
+                        table[ix].getKey() == null)) {
+                    ix++;
+                }
+                if (ix < table.length || table == table_)
+                    return;
+                table = table_;
+                ix = 0;
             }
         }
 
         public boolean hasNext() {
-            return ix < table_.length;
+            return ix < table.length;
         }
 
         public Map.Entry<K, V> next() {
@@ -161,12 +257,72 @@ public class HashTable<K, V> extends AbstractMap<K, V> {
                 throw new NoSuchElementException();
             }
 
-            Map.Entry<K, V> result = table_[ix++];
+            Map.Entry<K, V> result = table[ix++];
             findNext();
             return result;
         }
     }
 
+    // Splits the slots old_ ++ table_ by index ranges for parallel streams.
+    class SlotSpliterator<T> implements Spliterator<T> {
+        private final SimpleEntry<K, V>[] old = old_;
+        private final SimpleEntry<K, V>[] table = table_;
+        private final Function<SimpleEntry<K, V>, T> extract;
+        private int ix;
+        private final int end;
+
+        SlotSpliterator(Function<SimpleEntry<K, V>, T> extract, int ix, int end) {
+            this.extract = extract;
+            this.ix = ix;
+            this.end = end;
+        }
+
+        SlotSpliterator(Function<SimpleEntry<K, V>, T> extract) {
+            this(extract, 0, (old_ != null ? old_.length : 0) + table_.length);
+        }
+
+        private SimpleEntry<K, V> slot(int i) {
+            int n = old != null ? old.length : 0;
+            return i < n ? old[i] : table[i - n];
+        }
+
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (ix < end) {
+                SimpleEntry<K, V> entry = slot(ix++);
+                if (entry != null && entry.getKey() != null) {
+                    action.accept(extract.apply(entry));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public void forEachRemaining(Consumer<? super T> action) {
+            for (; ix < end; ix++) {
+                SimpleEntry<K, V> entry = slot(ix);
+                if (entry != null && entry.getKey() != null)
+                    action.accept(extract.apply(entry));
+            }
+        }
+
+        public Spliterator<T> trySplit() {
+            int mid = (ix + end) >>> 1;
+            if (mid - ix < 1024)
+                return null;
+            Spliterator<T> prefix = new SlotSpliterator<>(extract, ix, mid);
+            ix = mid;
+            return prefix;
+        }
+
+        public long estimateSize() {
+            return (long)(end - ix) * count_ / Math.max(1, capacity());
+        }
+
+        public int characteristics() {
+            return Spliterator.DISTINCT | Spliterator.NONNULL;
+        }
+    }
+
     public Set<Map.Entry<K, V>> entrySet() {
         return new AbstractSet<Map.Entry<K, V>>() {
             public int size() {
@@ -176,6 +332,10 @@ public class HashTable<K, V> extends AbstractMap<K, V> {
             public Iterator<Map.Entry<K, V>> iterator() {
                 return new EntryIterator();
             }
+            @Override
+            public Spliterator<Map.Entry<K, V>> spliterator() {
+                return new SlotSpliterator<>(entry -> entry);
+            }
         };
     }
 
@@ -208,27 +368,176 @@ public class HashTable<K, V> extends AbstractMap<K, V> {
             public boolean contains(Object key) {
                 return self.containsKey(key);
             }
+            @Override
+            public Spliterator<K> spliterator() {
+                return new SlotSpliterator<>(SimpleEntry::getKey);
+            }
         };
     }
 
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            public int size() {
+                return count_;
+            }
+            @Override
+            public Iterator<V> iterator() {
+                EntryIterator it = new EntryIterator();
+                return new Iterator<V>() {
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+                    public V next() {
+                        return it.next().getValue();
+                    }
+                };
+            }
+            @Override
+            public Spliterator<V> spliterator() {
+                return new SlotSpliterator<>(SimpleEntry::getValue);
+            }
+        };
+    }
+
+    // Bulk operations walk the slots directly instead of an iterator.
+
+    private static <K, V> void forEach(SimpleEntry<K, V>[] table, BiConsumer<? super K, ? super V> action) {
+        for (SimpleEntry<K, V> entry: table) {
+            if (entry != null && entry.getKey() != null)
+                action.accept(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (old_ != null)
+            forEach(old_, action);
+        forEach(table_, action);
+    }
+
+    private static <K, V> void replaceAll(SimpleEntry<K, V>[] table, BiFunction<? super K, ? super V, ? extends V> function) {
+        for (SimpleEntry<K, V> entry: table) {
+            if (entry != null && entry.getKey() != null)
+                entry.setValue(function.apply(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        if (old_ != null)
+            replaceAll(old_, function);
+        replaceAll(table_, function);
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remapping) {
+        SimpleEntry<K, V> entry = find(key);
+        V value = remapping.apply(key, entry != null ? entry.getValue() : null);
+        if (value == null) {
+            if (entry != null)
+                remove(key);
+        }
+        else if (entry != null)
+            entry.setValue(value);
+        else
+            put(key, value);
+        return value;
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remapping) {
+        SimpleEntry<K, V> entry = find(key);
+        if (entry == null || entry.getValue() == null) {
+            put(key, value);
+            return value;
+        }
+
+        V result = remapping.apply(entry.getValue(), value);
+        if (result == null)
+            remove(key);
+        else
+            entry.setValue(result);
+        return result;
+    }
+
+    // Makes room for N entries at once, so that putting them never rehashes.
+    public void ensureCapacity(int n) {
+        int cap = capacity();
+        while (n + removed_ >= cap / 2) {
+            cap *= 2;
+        }
+        if (cap > capacity()) {
+            while (old_ != null) {
+                migrate();
+            }
+            rehash(cap);
+        }
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        ensureCapacity(count_ + m.size());
+        for (Map.Entry<? extends K, ? extends V> entry: m.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public void putAll(K[] keys, V[] values) {
+        if (keys.length != values.length)
+            throw new IllegalArgumentException("size mismatch: " + keys.length + ", " + values.length);
+
+        ensureCapacity(count_ + keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            put(keys[i], values[i]);
+        }
+    }
+
+    // When dummy entries fill most of the used slots, the table is
+    // compacted in the same capacity instead of growing.
+    int newCapacity() {
+        return count_ >= capacity() / 4 ? 2 * capacity() : capacity();
+    }
+
     void rehash() {
+        rehash(newCapacity());
+    }
+
+    void rehash(int n) {
         // System.err.println("rehash is called.");
         SimpleEntry<K, V>[] backup = table_;
+        table_ = (SimpleEntry<K, V>[])new SimpleEntry[n];
+        removed_ = 0;
+
+        for (SimpleEntry<K, V> entry :backup) {
+            if (entry == null || entry.getKey() == null)
+                continue;
 
-        retry: do {
-            table_ = (SimpleEntry<K, V>[])new SimpleEntry[2 * capacity() + 1];
+            table_[searchPUT(entry.getKey())] = entry;
+        }
+    }
 
-            for (Map.Entry<K, V> entry :backup) {
-                if (entry == null)
-                    continue;
+    void startRehash() {
+        while (old_ != null) {
+            migrate();
+        }
+        old_ = table_;
+        migrated_ = 0;
+        table_ = (SimpleEntry<K, V>[])new SimpleEntry[newCapacity()];
+        removed_ = 0;
+    }
 
-                int ix = searchPUT(entry.getKey());
-                if (ix < 0)
-                    continue retry;
+    void migrate() {
+        int end = Math.min(migrated_ + MIGRATE_STEP, old_.length);
+        for (; migrated_ < end; migrated_++) {
+            SimpleEntry<K, V> entry = old_[migrated_];
+            if (entry == null || entry.getKey() == null)
+                continue;
 
-                table_[ix] = (SimpleEntry<K, V>)entry;
-            }
-        } while (false);
+            table_[searchPUT(entry.getKey())] = entry;
+            old_[migrated_] = REMOVED;
+        }
+        if (migrated_ >= old_.length)
+            old_ = null;
     }
 
     public static void main(String[] args) {
@@ -253,5 +562,30 @@ public class HashTable<K, V> extends AbstractMap<K, V> {
             System.out.printf("%s: %8x %d %d\n", country, country.hashCode(), table.hash(country) % 10, table.hash2(country) % 10);
             System.out.printf("%s: %8x %d %d\n", country, country.hashCode(), table.hash(country) % 21, table.hash2(country) % 21);
         }
+
+        HashTable<Integer, Integer> squares = new HashTable<>();
+        Integer[] keys = new Integer[1000000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i;
+        }
+        squares.putAll(keys, keys);
+        squares.replaceAll((k, v) -> v * v);
+        squares.merge(2, 1, Integer::sum);
+        System.out.printf("size: %d, capacity: %d, 2: %d, sum: %d%n",
+                          squares.size(), squares.capacity(), squares.get(2),
+                          squares.values().parallelStream().mapToLong(v -> v).sum());
+
+        for (boolean incremental: new boolean[] { false, true }) {
+            HashTable<Integer, Integer> numbers = new HashTable<>(10, incremental);
+            long[] latency = new long[1000000];
+            for (int i = 0; i < latency.length; i++) {
+                long start = System.nanoTime();
+                numbers.put(i, i);
+                latency[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(latency);
+            System.out.printf("incremental: %b, size: %d, put 99.9%%: %d ns%n",
+                              incremental, numbers.size(), latency[latency.length * 999 / 1000]);
+        }
     }
 }
@@ -0,0 +1,57 @@
+import java.util.*;
+
+/**
+ * Churn benchmark for HashTable.
+ *
+ * The table keeps LIVE keys while every round removes and inserts CHURN
+ * keys; then it measures lookups of live keys and of missing keys.  With
+ * the dummy entries of removed keys compacted, the lookup cost has to stay
+ * flat from round to round.
+ *
+ *     java HashTableChurn [live] [rounds] [incremental]
+ */
+public class HashTableChurn {
+    public static void main(String[] args) {
+        int live = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        boolean incremental = args.length > 2 && Boolean.parseBoolean(args[2]);
+        int churn = live / 2;
+
+        HashTable<Integer, Integer> table = new HashTable<>(10, incremental);
+        int[] keys = new int[live];
+        Random random = new Random(1);
+        int next = 0;   // keys are distinct: multiplying by an odd number is a bijection
+        for (int i = 0; i < live; i++) {
+            keys[i] = next++ * 0x9E3779B9;
+            table.put(keys[i], i);
+        }
+
+        long sink = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < churn; i++) {
+                int j = random.nextInt(live);
+                table.remove(keys[j]);
+                keys[j] = next++ * 0x9E3779B9;
+                table.put(keys[j], j);
+            }
+
+            long start = System.nanoTime();
+            for (int key: keys) {
+                sink += table.get(key);
+            }
+            long hit = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < live; i++) {
+                if (table.containsKey(random.nextInt()))
+                    sink++;
+            }
+            long miss = System.nanoTime() - start;
+
+            System.out.printf("round %2d: size %d, capacity %d, removed %d, hit %.1f ns, miss %.1f ns%n",
+                              round, table.size(), table.capacity(), table.removedCount(),
+                              (double)hit / live, (double)miss / live);
+        }
+        System.out.println("(" + sink + ")");
+    }
+}
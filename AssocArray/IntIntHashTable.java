@@ -0,0 +1,186 @@
+import java.util.Arrays;
+
+/**
+ * Open addressing hash table from int to int.
+ *
+ * Keys and values live in parallel int arrays, so get/put never allocate.
+ * The key 0 marks an unused slot; the mapping of the key 0 itself is kept
+ * aside in a separate field.  Probing and removed slots are handled by
+ * PrimitiveHashTable.
+ */
+public class IntIntHashTable extends PrimitiveHashTable {
+    protected int[] keys_;
+    protected int[] values_;
+
+    private int emptyKeyValue = 0;
+
+    public interface EntryConsumer {
+        void accept(int key, int value);
+    }
+
+    public IntIntHashTable(int n) {
+        allocate(powerOfTwo(n));
+    }
+
+    public IntIntHashTable() {
+        this(16);
+    }
+
+    private void allocate(int cap) {
+        keys_ = new int[cap];
+        values_ = new int[cap];
+        allocateRemoved(cap);
+    }
+
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    protected int hash(long key) {
+        return mix((int)key) & 0x3FFFFFFF;
+    }
+    protected int hash2(long key) {
+        return (mix((int)key) >>> 16) | 1;
+    }
+
+    long keyAt(int ix) {
+        return keys_[ix];
+    }
+
+    public int capacity() {
+        return keys_.length;
+    }
+
+    public void clear() {
+        Arrays.fill(keys_, 0);
+        emptyKeyValue = 0;
+        clearSlots();
+    }
+
+    public boolean containsKey(int key) {
+        if (key == EMPTY)
+            return hasEmptyKey_;
+        return searchGET(key) >= 0;
+    }
+
+    public int getOrDefault(int key, int defaultValue) {
+        if (key == EMPTY)
+            return hasEmptyKey_ ? emptyKeyValue : defaultValue;
+        int ix = searchGET(key);
+        return ix >= 0 ? values_[ix] : defaultValue;
+    }
+
+    public int get(int key) {
+        return getOrDefault(key, 0);
+    }
+
+    public int put(int key, int value) {
+        if (key == EMPTY) {
+            int before = emptyKeyValue;
+            addEmptyKey();
+            emptyKeyValue = value;
+            return before;
+        }
+
+        if (needsRehash())
+            rehash();
+
+        int ix = searchPUT(key);
+        if (keys_[ix] == key) {
+            int before = values_[ix];
+            values_[ix] = value;
+            return before;
+        }
+
+        occupy(ix);
+        keys_[ix] = key;
+        values_[ix] = value;
+        return 0;
+    }
+
+    /** Adds DELTA to the value of KEY (0 if absent) and returns the new value. */
+    public int addTo(int key, int delta) {
+        int ix = key == EMPTY ? -1 : searchGET(key);
+        if (ix >= 0)
+            return values_[ix] += delta;
+        int value = getOrDefault(key, 0) + delta;
+        put(key, value);
+        return value;
+    }
+
+    public int remove(int key) {
+        if (key == EMPTY) {
+            int before = emptyKeyValue;
+            if (removeEmptyKey())
+                emptyKeyValue = 0;
+            return before;
+        }
+
+        int ix = searchGET(key);
+        if (ix >= 0) {
+            int result = values_[ix];
+            keys_[ix] = 0;
+            vacate(ix);
+            return result;
+        }
+        else {
+            return 0;
+        }
+    }
+
+    public void forEach(EntryConsumer action) {
+        if (hasEmptyKey_)
+            action.accept(0, emptyKeyValue);
+        for (int ix = 0; ix < keys_.length; ix++) {
+            if (keys_[ix] != EMPTY)
+                action.accept(keys_[ix], values_[ix]);
+        }
+    }
+
+    void rehash() {
+        int[] oldKeys = keys_;
+        int[] oldValues = values_;
+        allocate(rehashCapacity());
+        for (int i = 0; i < oldKeys.length; i++) {
+            int k = oldKeys[i];
+            if (k == EMPTY)
+                continue;
+            int ix = searchPUT(k);
+            keys_[ix] = k;
+            values_[ix] = oldValues[i];
+            used_++;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach((k, v) -> {
+            if (sb.length() > 1)
+                sb.append(", ");
+            sb.append(k).append('=').append(v);
+        });
+        return sb.append('}').toString();
+    }
+
+    public static void main(String[] args) {
+        IntIntHashTable counts = new IntIntHashTable();
+        int[] data = { 3, 1, 4, 1, 5, 9, 2, 6, 5, 3, 5, 0, 0 };
+        for (int x: data) {
+            counts.addTo(x, 1);
+        }
+        System.out.println(counts);
+        counts.remove(5);
+        counts.remove(0);
+        System.out.println(counts + " size: " + counts.size());
+
+        for (int i = 0; i < 100000; i++) {
+            counts.put(i, i * i);
+            if (i % 3 == 0)
+                counts.remove(i);
+        }
+        System.out.printf("size: %d, capacity: %d, get(99998): %d%n",
+                          counts.size(), counts.capacity(), counts.get(99998));
+    }
+}
@@ -0,0 +1,186 @@
+import java.util.Arrays;
+
+/**
+ * Open addressing hash table from long to long.
+ *
+ * Keys and values live in parallel long arrays, so get/put never allocate.
+ * The key 0 marks an unused slot; the mapping of the key 0 itself is kept
+ * aside in a separate field.  Probing and removed slots are handled by
+ * PrimitiveHashTable.
+ */
+public class LongLongHashTable extends PrimitiveHashTable {
+    protected long[] keys_;
+    protected long[] values_;
+
+    private long emptyKeyValue = 0;
+
+    public interface EntryConsumer {
+        void accept(long key, long value);
+    }
+
+    public LongLongHashTable(int n) {
+        allocate(powerOfTwo(n));
+    }
+
+    public LongLongHashTable() {
+        this(16);
+    }
+
+    private void allocate(int cap) {
+        keys_ = new long[cap];
+        values_ = new long[cap];
+        allocateRemoved(cap);
+    }
+
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+
+    protected int hash(long key) {
+        return mix(key) & 0x3FFFFFFF;
+    }
+    protected int hash2(long key) {
+        return (mix(key) >>> 16) | 1;
+    }
+
+    long keyAt(int ix) {
+        return keys_[ix];
+    }
+
+    public int capacity() {
+        return keys_.length;
+    }
+
+    public void clear() {
+        Arrays.fill(keys_, EMPTY);
+        emptyKeyValue = 0;
+        clearSlots();
+    }
+
+    public boolean containsKey(long key) {
+        if (key == EMPTY)
+            return hasEmptyKey_;
+        return searchGET(key) >= 0;
+    }
+
+    public long getOrDefault(long key, long defaultValue) {
+        if (key == EMPTY)
+            return hasEmptyKey_ ? emptyKeyValue : defaultValue;
+        int ix = searchGET(key);
+        return ix >= 0 ? values_[ix] : defaultValue;
+    }
+
+    public long get(long key) {
+        return getOrDefault(key, 0);
+    }
+
+    public long put(long key, long value) {
+        if (key == EMPTY) {
+            long before = emptyKeyValue;
+            addEmptyKey();
+            emptyKeyValue = value;
+            return before;
+        }
+
+        if (needsRehash())
+            rehash();
+
+        int ix = searchPUT(key);
+        if (keys_[ix] == key) {
+            long before = values_[ix];
+            values_[ix] = value;
+            return before;
+        }
+
+        occupy(ix);
+        keys_[ix] = key;
+        values_[ix] = value;
+        return 0;
+    }
+
+    /** Adds DELTA to the value of KEY (0 if absent) and returns the new value. */
+    public long addTo(long key, long delta) {
+        int ix = key == EMPTY ? -1 : searchGET(key);
+        if (ix >= 0)
+            return values_[ix] += delta;
+        long value = getOrDefault(key, 0) + delta;
+        put(key, value);
+        return value;
+    }
+
+    public long remove(long key) {
+        if (key == EMPTY) {
+            long before = emptyKeyValue;
+            if (removeEmptyKey())
+                emptyKeyValue = 0;
+            return before;
+        }
+
+        int ix = searchGET(key);
+        if (ix >= 0) {
+            long result = values_[ix];
+            keys_[ix] = EMPTY;
+            vacate(ix);
+            return result;
+        }
+        else {
+            return 0;
+        }
+    }
+
+    public void forEach(EntryConsumer action) {
+        if (hasEmptyKey_)
+            action.accept(EMPTY, emptyKeyValue);
+        for (int ix = 0; ix < keys_.length; ix++) {
+            if (keys_[ix] != EMPTY)
+                action.accept(keys_[ix], values_[ix]);
+        }
+    }
+
+    void rehash() {
+        long[] oldKeys = keys_;
+        long[] oldValues = values_;
+        allocate(rehashCapacity());
+        for (int i = 0; i < oldKeys.length; i++) {
+            long k = oldKeys[i];
+            if (k == EMPTY)
+                continue;
+            int ix = searchPUT(k);
+            keys_[ix] = k;
+            values_[ix] = oldValues[i];
+            used_++;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach((k, v) -> {
+            if (sb.length() > 1)
+                sb.append(", ");
+            sb.append(k).append('=').append(v);
+        });
+        return sb.append('}').toString();
+    }
+
+    public static void main(String[] args) {
+        LongLongHashTable counts = new LongLongHashTable();
+        long[] data = { 3, 1, 4, 1, 5, 9, 2, 6, 5, 3, 5, 0, 0 };
+        for (long x: data) {
+            counts.addTo(x, 1);
+        }
+        System.out.println(counts);
+        counts.remove(5);
+        counts.remove(0);
+        System.out.println(counts + " size: " + counts.size());
+
+        for (int i = 0; i < 100000; i++) {
+            counts.put(i, (long)i * i);
+            if (i % 3 == 0)
+                counts.remove(i);
+        }
+        System.out.printf("size: %d, capacity: %d, get(99998): %d%n",
+                          counts.size(), counts.capacity(), counts.get(99998));
+    }
+}
@@ -0,0 +1,177 @@
+import java.util.Arrays;
+
+/**
+ * Open addressing hash table from long to objects.
+ *
+ * Keys live in a long array parallel to the value array, so get/put never
+ * box the key.  The key 0 marks an unused slot; the mapping of the key 0
+ * itself is kept aside in a separate field.  Probing and removed slots are
+ * handled by PrimitiveHashTable.
+ */
+public class LongObjectHashTable<V> extends PrimitiveHashTable {
+    protected long[] keys_;
+    protected V[] values_;
+
+    private V emptyKeyValue = null;
+
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    public LongObjectHashTable(int n) {
+        allocate(powerOfTwo(n));
+    }
+
+    public LongObjectHashTable() {
+        this(16);
+    }
+
+    private void allocate(int cap) {
+        keys_ = new long[cap];
+        values_ = (V[])new Object[cap];
+        allocateRemoved(cap);
+    }
+
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+
+    protected int hash(long key) {
+        return mix(key) & 0x3FFFFFFF;
+    }
+    protected int hash2(long key) {
+        return (mix(key) >>> 16) | 1;
+    }
+
+    long keyAt(int ix) {
+        return keys_[ix];
+    }
+
+    public int capacity() {
+        return keys_.length;
+    }
+
+    public void clear() {
+        Arrays.fill(keys_, EMPTY);
+        Arrays.fill(values_, null);
+        emptyKeyValue = null;
+        clearSlots();
+    }
+
+    public boolean containsKey(long key) {
+        if (key == EMPTY)
+            return hasEmptyKey_;
+        return searchGET(key) >= 0;
+    }
+
+    public V getOrDefault(long key, V defaultValue) {
+        if (key == EMPTY)
+            return hasEmptyKey_ ? emptyKeyValue : defaultValue;
+        int ix = searchGET(key);
+        return ix >= 0 ? values_[ix] : defaultValue;
+    }
+
+    public V get(long key) {
+        return getOrDefault(key, null);
+    }
+
+    public V put(long key, V value) {
+        if (key == EMPTY) {
+            V before = emptyKeyValue;
+            addEmptyKey();
+            emptyKeyValue = value;
+            return before;
+        }
+
+        if (needsRehash())
+            rehash();
+
+        int ix = searchPUT(key);
+        if (keys_[ix] == key) {
+            V before = values_[ix];
+            values_[ix] = value;
+            return before;
+        }
+
+        occupy(ix);
+        keys_[ix] = key;
+        values_[ix] = value;
+        return null;
+    }
+
+    public V remove(long key) {
+        if (key == EMPTY) {
+            V before = emptyKeyValue;
+            if (removeEmptyKey())
+                emptyKeyValue = null;
+            return before;
+        }
+
+        int ix = searchGET(key);
+        if (ix >= 0) {
+            V result = values_[ix];
+            keys_[ix] = EMPTY;
+            values_[ix] = null;
+            vacate(ix);
+            return result;
+        }
+        else {
+            return null;
+        }
+    }
+
+    public void forEach(EntryConsumer<? super V> action) {
+        if (hasEmptyKey_)
+            action.accept(EMPTY, emptyKeyValue);
+        for (int ix = 0; ix < keys_.length; ix++) {
+            if (keys_[ix] != EMPTY)
+                action.accept(keys_[ix], values_[ix]);
+        }
+    }
+
+    void rehash() {
+        long[] oldKeys = keys_;
+        V[] oldValues = values_;
+        allocate(rehashCapacity());
+        for (int i = 0; i < oldKeys.length; i++) {
+            long k = oldKeys[i];
+            if (k == EMPTY)
+                continue;
+            int ix = searchPUT(k);
+            keys_[ix] = k;
+            values_[ix] = oldValues[i];
+            used_++;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach((k, v) -> {
+            if (sb.length() > 1)
+                sb.append(", ");
+            sb.append(k).append('=').append(v);
+        });
+        return sb.append('}').toString();
+    }
+
+    public static void main(String[] args) {
+        LongObjectHashTable<String> names = new LongObjectHashTable<>();
+        names.put(81L, "Japan");
+        names.put(1L, "US");
+        names.put(44L, "UK");
+        names.put(33L, "France");
+        names.put(0L, "(none)");
+        System.out.println(names);
+        names.remove(1L);
+        names.put(44L, "United Kingdom");
+        System.out.println(names + " size: " + names.size());
+
+        for (long i = 1; i <= 100000; i++) {
+            names.put(i << 32, Long.toHexString(i));
+        }
+        System.out.printf("size: %d, capacity: %d, get(7 << 32): %s%n",
+                          names.size(), names.capacity(), names.get(7L << 32));
+    }
+}
@@ -0,0 +1,357 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Open addressing hash table kept in a memory mapped file.
+ *
+ * Keys and values are byte strings of fixed widths given at creation.
+ * The file is a header followed by the slots:
+ *
+ *     header (64 bytes): magic, version, capacity, count, removed,
+ *                        key width, value width
+ *     slot:              state (1 byte), key, value
+ *
+ * Opening a table only maps the file, so it costs the same for any size;
+ * the pages are read in by the OS as they are touched.  A mapping can not
+ * exceed 2GB, so the slots are mapped in regions of 2^regionShift_ slots.
+ * The table is not thread-safe.
+ */
+public class MappedHashTable implements Closeable {
+    static final int MAGIC = 0x4D485431;        // "MHT1"
+    static final int VERSION = 1;
+    static final int HEADER = 64;
+    static final int REGION_BYTES = 1 << 30;
+
+    static final byte EMPTY = 0;
+    static final byte USED = 1;
+    static final byte REMOVED = 2;
+
+    private final Path path_;
+    private final int keyWidth_;
+    private final int valueWidth_;
+    private final int slotSize_;
+    private final byte[] keyBuf_;
+    private final byte[] valueBuf_;
+
+    private FileChannel channel_;
+    private MappedByteBuffer header_;
+    private MappedByteBuffer[] regions_;
+    private int regionShift_;
+    private long capacity_;
+    private long count_;
+    private long removed_;
+
+    private MappedHashTable(Path path, int keyWidth, int valueWidth) {
+        path_ = path;
+        keyWidth_ = keyWidth;
+        valueWidth_ = valueWidth;
+        slotSize_ = 1 + keyWidth + valueWidth;
+        keyBuf_ = new byte[keyWidth];
+        valueBuf_ = new byte[valueWidth];
+    }
+
+    /** Creates a new file for N entries, replacing an existing one. */
+    public static MappedHashTable create(Path path, int keyWidth, int valueWidth, long n) throws IOException {
+        if (keyWidth <= 0 || valueWidth < 0)
+            throw new IllegalArgumentException("width: " + keyWidth + ", " + valueWidth);
+
+        long cap = 8;
+        while (cap < 2 * n)
+            cap <<= 1;
+
+        MappedHashTable table = new MappedHashTable(path, keyWidth, valueWidth);
+        Files.deleteIfExists(path);
+        table.map(cap);
+        table.header_.putInt(0, MAGIC);
+        table.header_.putInt(4, VERSION);
+        table.header_.putLong(8, cap);
+        table.header_.putInt(32, keyWidth);
+        table.header_.putInt(36, valueWidth);
+        table.writeCounts();
+        return table;
+    }
+
+    /** Opens a file made by create(). */
+    public static MappedHashTable open(Path path) throws IOException {
+        MappedHashTable table;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer h = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            if (h.getInt(0) != MAGIC || h.getInt(4) != VERSION)
+                throw new IOException("not a MappedHashTable: " + path);
+            table = new MappedHashTable(path, h.getInt(32), h.getInt(36));
+            table.map(h.getLong(8));
+        }
+        table.count_ = table.header_.getLong(16);
+        table.removed_ = table.header_.getLong(24);
+        return table;
+    }
+
+    private void map(long cap) throws IOException {
+        channel_ = FileChannel.open(path_, StandardOpenOption.CREATE,
+                                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        header_ = channel_.map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+
+        long perRegion = Math.min(cap, Long.highestOneBit(REGION_BYTES / slotSize_));
+        regionShift_ = Long.numberOfTrailingZeros(perRegion);
+        regions_ = new MappedByteBuffer[(int)(cap / perRegion)];
+        for (int i = 0; i < regions_.length; i++) {
+            regions_[i] = channel_.map(FileChannel.MapMode.READ_WRITE,
+                                       HEADER + i * perRegion * slotSize_, perRegion * slotSize_);
+        }
+        capacity_ = cap;
+    }
+
+    private void writeCounts() {
+        header_.putLong(16, count_);
+        header_.putLong(24, removed_);
+    }
+
+    public long size() {
+        return count_;
+    }
+
+    public long capacity() {
+        return capacity_;
+    }
+
+    public int keyWidth() {
+        return keyWidth_;
+    }
+
+    public int valueWidth() {
+        return valueWidth_;
+    }
+
+    private MappedByteBuffer region(long slot) {
+        return regions_[(int)(slot >>> regionShift_)];
+    }
+
+    private int offset(long slot) {
+        return (int)(slot & ((1L << regionShift_) - 1)) * slotSize_;
+    }
+
+    // FNV-1a
+    static long hash(byte[] key) {
+        long h = 0xCBF29CE484222325L;
+        for (byte b: key) {
+            h = (h ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        return h ^ (h >>> 29);
+    }
+
+    private boolean keyEquals(MappedByteBuffer r, int off, byte[] key) {
+        for (int i = 0; i < keyWidth_; i++) {
+            if (r.get(off + i) != key[i])
+                return false;
+        }
+        return true;
+    }
+
+    private void checkKey(byte[] key) {
+        if (key.length != keyWidth_)
+            throw new IllegalArgumentException("key width: " + key.length);
+    }
+
+    long searchGET(byte[] key) {
+        long h = hash(key);
+        long mask = capacity_ - 1;
+        long step = (h >>> 32) | 1;
+        long slot = h & mask;
+        for (long i = 0; i < capacity_; i++) {
+            MappedByteBuffer r = region(slot);
+            int off = offset(slot);
+            byte state = r.get(off);
+            if (state == EMPTY)
+                return -1;
+            if (state == USED && keyEquals(r, off + 1, key))
+                return slot;
+            slot = (slot + step) & mask;
+        }
+        return -1;
+    }
+
+    // returns the slot of KEY, or the first free slot on its probe sequence as (-1 - slot)
+    long searchPUT(byte[] key) {
+        long h = hash(key);
+        long mask = capacity_ - 1;
+        long step = (h >>> 32) | 1;
+        long slot = h & mask;
+        long free = -1;
+        for (long i = 0; i < capacity_; i++) {
+            MappedByteBuffer r = region(slot);
+            int off = offset(slot);
+            byte state = r.get(off);
+            if (state == EMPTY)
+                return -1 - (free >= 0 ? free : slot);
+            if (state == REMOVED) {
+                if (free < 0)
+                    free = slot;
+            }
+            else if (keyEquals(r, off + 1, key))
+                return slot;
+            slot = (slot + step) & mask;
+        }
+        return -1 - free;
+    }
+
+    public boolean containsKey(byte[] key) {
+        checkKey(key);
+        return searchGET(key) >= 0;
+    }
+
+    /** Copies the value of KEY into VALUE; returns false if KEY is absent. */
+    public boolean get(byte[] key, byte[] value) {
+        checkKey(key);
+        long slot = searchGET(key);
+        if (slot < 0)
+            return false;
+        region(slot).get(offset(slot) + 1 + keyWidth_, value, 0, valueWidth_);
+        return true;
+    }
+
+    public byte[] get(byte[] key) {
+        byte[] value = new byte[valueWidth_];
+        return get(key, value) ? value : null;
+    }
+
+    /** Returns true if KEY was not in the table. */
+    public boolean put(byte[] key, byte[] value) throws IOException {
+        checkKey(key);
+        if (value.length != valueWidth_)
+            throw new IllegalArgumentException("value width: " + value.length);
+
+        if (count_ + removed_ >= capacity_ / 2)
+            rehash();
+
+        long slot = searchPUT(key);
+        boolean added = slot < 0;
+        if (added)
+            slot = -1 - slot;
+
+        MappedByteBuffer r = region(slot);
+        int off = offset(slot);
+        if (added) {
+            if (r.get(off) == REMOVED)
+                removed_--;
+            count_++;
+            r.put(off + 1, key);
+            r.put(off, USED);
+            writeCounts();
+        }
+        r.put(off + 1 + keyWidth_, value);
+        return added;
+    }
+
+    public boolean remove(byte[] key) {
+        checkKey(key);
+        long slot = searchGET(key);
+        if (slot < 0)
+            return false;
+        region(slot).put(offset(slot), REMOVED);
+        count_--;
+        removed_++;
+        writeCounts();
+        return true;
+    }
+
+    private byte[] keyOf(long key) {
+        for (int i = 7; i >= 0; i--, key >>>= 8) {
+            keyBuf_[i] = (byte)key;
+        }
+        return keyBuf_;
+    }
+
+    private void checkLongs() {
+        if (keyWidth_ != 8 || valueWidth_ != 8)
+            throw new IllegalStateException("not a long to long table");
+    }
+
+    public long getLong(long key, long defaultValue) {
+        checkLongs();
+        long slot = searchGET(keyOf(key));
+        return slot >= 0 ? region(slot).getLong(offset(slot) + 9) : defaultValue;
+    }
+
+    public boolean putLong(long key, long value) throws IOException {
+        checkLongs();
+        for (int i = 7; i >= 0; i--, value >>>= 8) {
+            valueBuf_[i] = (byte)value;
+        }
+        return put(keyOf(key), valueBuf_);
+    }
+
+    public boolean removeLong(long key) {
+        checkLongs();
+        return remove(keyOf(key));
+    }
+
+    // Copies the live entries into a new file, which then takes the place of
+    // the old one.  The capacity doubles unless removed slots fill the table.
+    void rehash() throws IOException {
+        long cap = count_ >= capacity_ / 4 ? 2 * capacity_ : capacity_;
+        Path tmp = path_.resolveSibling(path_.getFileName() + ".rehash");
+        MappedHashTable table = create(tmp, keyWidth_, valueWidth_, cap / 2);
+
+        byte[] key = new byte[keyWidth_];
+        byte[] value = new byte[valueWidth_];
+        for (long slot = 0; slot < capacity_; slot++) {
+            MappedByteBuffer r = region(slot);
+            int off = offset(slot);
+            if (r.get(off) != USED)
+                continue;
+            r.get(off + 1, key);
+            r.get(off + 1 + keyWidth_, value);
+            table.put(key, value);
+        }
+        table.close();
+        close();
+
+        Files.move(tmp, path_, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        map(cap);
+        count_ = header_.getLong(16);
+        removed_ = header_.getLong(24);
+    }
+
+    public void force() {
+        header_.force();
+        for (MappedByteBuffer r: regions_) {
+            r.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel_.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path path = Files.createTempFile("mapped", ".table");
+        try (MappedHashTable table = MappedHashTable.create(path, 8, 8, 16)) {
+            for (long i = 1; i <= 100000; i++) {
+                table.putLong(i, i * i);
+            }
+            table.removeLong(3);
+        }
+
+        try (MappedHashTable table = MappedHashTable.open(path)) {
+            System.out.printf("size: %d, capacity: %d, 99999^2 = %d, 3^2 = %d%n",
+                              table.size(), table.capacity(),
+                              table.getLong(99999, -1), table.getLong(3, -1));
+        }
+
+        try (MappedHashTable caps = MappedHashTable.create(path, 8, 16, 10)) {
+            caps.put(Arrays.copyOf("Japan".getBytes(), 8), Arrays.copyOf("Tokyo".getBytes(), 16));
+            caps.put(Arrays.copyOf("UK".getBytes(), 8), Arrays.copyOf("London".getBytes(), 16));
+            System.out.println(new String(caps.get(Arrays.copyOf("UK".getBytes(), 8))).trim());
+        }
+        Files.delete(path);
+    }
+}
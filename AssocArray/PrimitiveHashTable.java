@@ -0,0 +1,143 @@
+import java.util.Arrays;
+
+/**
+ * Open addressing shared by IntIntHashTable, LongLongHashTable and
+ * LongObjectHashTable.
+ *
+ * A subclass keeps the keys and the values in arrays of its own types and
+ * reads the key of a slot as a long through keyAt; the double hashing probe
+ * sequence, the bitmap removed_ of removed slots, the counts and the rehash
+ * policy are here.  The key 0 marks an unused slot, so the mapping of the
+ * key 0 itself is kept aside by the subclass, and only counted here.
+ *
+ * The probe loops are small enough to be inlined into the typed get/put
+ * of a subclass, where keyAt is a call of a known method.
+ */
+abstract class PrimitiveHashTable {
+    static final long EMPTY = 0;
+
+    protected long[] removed_;
+    protected int count_ = 0;
+    protected int used_ = 0;        // live entries + removed slots
+    protected boolean hasEmptyKey_ = false;
+
+    // The capacity is a power of 2 so that an odd step visits every slot.
+    static int powerOfTwo(int n) {
+        int cap = 8;
+        while (cap < n)
+            cap <<= 1;
+        return cap;
+    }
+
+    public abstract int capacity();
+
+    // the key in slot IX, EMPTY if the slot is unused or removed
+    abstract long keyAt(int ix);
+
+    protected abstract int hash(long key);
+    protected abstract int hash2(long key);
+
+    // for a new key array of CAP slots
+    void allocateRemoved(int cap) {
+        removed_ = new long[(cap + 63) >>> 6];
+        used_ = 0;
+    }
+
+    boolean isRemoved(int ix) {
+        return (removed_[ix >>> 6] & (1L << ix)) != 0;
+    }
+
+    public int size() {
+        return count_;
+    }
+
+    public boolean isEmpty() {
+        return count_ == 0;
+    }
+
+    // the subclass clears its key array
+    void clearSlots() {
+        Arrays.fill(removed_, 0L);
+        count_ = 0;
+        used_ = 0;
+        hasEmptyKey_ = false;
+    }
+
+    int searchGET(long key) {
+        int mask = capacity() - 1;
+        int ix = hash(key) & mask;
+        int step = hash2(key);
+        for (;;) {
+            long k = keyAt(ix);
+            if (k == key)
+                return ix;
+            if (k == EMPTY && ! isRemoved(ix))
+                return -1;
+            ix = (ix + step) & mask;
+        }
+    }
+
+    // returns the slot of KEY, or the first free slot on its probe sequence
+    int searchPUT(long key) {
+        int mask = capacity() - 1;
+        int ix = hash(key) & mask;
+        int step = hash2(key);
+        int free = -1;
+        for (;;) {
+            long k = keyAt(ix);
+            if (k == key)
+                return ix;
+            if (k == EMPTY) {
+                if (! isRemoved(ix))
+                    return free >= 0 ? free : ix;
+                if (free < 0)
+                    free = ix;
+            }
+            ix = (ix + step) & mask;
+        }
+    }
+
+    boolean needsRehash() {
+        return used_ >= capacity() / 2;
+    }
+
+    // counts the free slot IX found by searchPUT as taken by a new key
+    void occupy(int ix) {
+        if (isRemoved(ix))
+            removed_[ix >>> 6] &= ~(1L << ix);
+        else
+            used_++;
+        count_++;
+    }
+
+    // counts slot IX, whose key the subclass has cleared, as removed
+    void vacate(int ix) {
+        removed_[ix >>> 6] |= 1L << ix;
+        count_--;
+    }
+
+    // counts the key 0 in, and returns whether it was there already
+    boolean addEmptyKey() {
+        if (hasEmptyKey_)
+            return true;
+        hasEmptyKey_ = true;
+        count_++;
+        return false;
+    }
+
+    // counts the key 0 out, and returns whether it was there
+    boolean removeEmptyKey() {
+        if (! hasEmptyKey_)
+            return false;
+        hasEmptyKey_ = false;
+        count_--;
+        return true;
+    }
+
+    // Doubles the capacity unless most of the used slots are removed ones,
+    // in which case the table is rebuilt in the same size.
+    int rehashCapacity() {
+        int live = count_ - (hasEmptyKey_ ? 1 : 0);
+        return live >= capacity() / 4 ? 2 * capacity() : capacity();
+    }
+}
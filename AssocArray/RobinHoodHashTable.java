@@ -0,0 +1,289 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.*;
+
+/**
+ * Open addressing hash table with Robin Hood linear probing.
+ *
+ * It is an alternative engine to HashTable behind the same Map API.
+ * Every slot has a control byte in ctrl_: 0 for an empty slot, or
+ * 0x80 | 7 bits of the hash.  A lookup loads 8 control bytes as a long and
+ * matches them all at once, so keys are compared only on tag matches.
+ * Robin Hood insertion lets an entry far from its home slot take the place
+ * of one nearer to its home, which keeps every probe distance below
+ * maxProbe_; removal shifts the following entries back instead of leaving
+ * dummy entries.
+ */
+public class RobinHoodHashTable<K, V> extends AbstractMap<K, V> {
+    static final int GROUP = 8;
+    static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+    static final long HIGH = 0x8080808080808080L;
+    static final long ONES = 0x0101010101010101L;
+    static final VarHandle GROUP_OF =
+        MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // ctrl_[capacity .. capacity + GROUP) mirrors ctrl_[0 .. GROUP),
+    // so that a group starting near the end need not wrap around.
+    protected byte[] ctrl_;
+    protected K[] keys_;
+    protected V[] values_;
+    protected int[] hashes_;
+    protected int count_ = 0;
+    protected int maxProbe_ = 0;
+
+    public RobinHoodHashTable(int n) {
+        int cap = GROUP;
+        while (cap < n)
+            cap <<= 1;
+        allocate(cap);
+    }
+
+    public RobinHoodHashTable() {
+        this(16);
+    }
+
+    private void allocate(int cap) {
+        ctrl_ = new byte[cap + GROUP];
+        keys_ = (K[])new Object[cap];
+        values_ = (V[])new Object[cap];
+        hashes_ = new int[cap];
+        maxProbe_ = 0;
+    }
+
+    protected int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int home(int h) {
+        return (h >>> 7) & (keys_.length - 1);
+    }
+
+    private static byte tag(int h) {
+        return (byte)(0x80 | (h & 0x7F));
+    }
+
+    private void setCtrl(int ix, byte c) {
+        ctrl_[ix] = c;
+        if (ix < GROUP)
+            ctrl_[keys_.length + ix] = c;
+    }
+
+    // the high bit of every byte of X that is 0
+    private static long zeroBytes(long x) {
+        return ~(((x & LOW7) + LOW7) | x | LOW7);
+    }
+
+    @Override
+    public int size() {
+        return count_;
+    }
+
+    public int capacity() {
+        return keys_.length;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(ctrl_, (byte)0);
+        Arrays.fill(keys_, null);
+        Arrays.fill(values_, null);
+        count_ = 0;
+        maxProbe_ = 0;
+    }
+
+    int search(Object key) {
+        int h = hash(key);
+        int mask = keys_.length - 1;
+        long pattern = ONES * (tag(h) & 0xFF);
+        int ix = home(h);
+
+        for (int probed = 0; probed <= maxProbe_; probed += GROUP) {
+            long group = (long)GROUP_OF.get(ctrl_, ix);
+            for (long match = zeroBytes(group ^ pattern); match != 0; match &= match - 1) {
+                int slot = (ix + (Long.numberOfTrailingZeros(match) >>> 3)) & mask;
+                if (hashes_[slot] == h && key.equals(keys_[slot]))
+                    return slot;
+            }
+            // an empty slot ends every probe sequence through it
+            if ((~group & HIGH) != 0)
+                return -1;
+            ix = (ix + GROUP) & mask;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return search(key) >= 0;
+    }
+
+    @Override
+    public V get(Object key) {
+        int ix = search(key);
+        return ix >= 0 ? values_[ix] : null;
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        int ix = search(key);
+        return ix >= 0 ? values_[ix] : defaultValue;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        int ix = search(key);
+        if (ix >= 0) {
+            V before = values_[ix];
+            values_[ix] = value;
+            return before;
+        }
+
+        if (count_ >= capacity() - capacity() / 8)
+            rehash();
+        insert(hash(key), key, value);
+        count_++;
+        return null;
+    }
+
+    // KEY must not be in the table.
+    private void insert(int h, K key, V value) {
+        int mask = keys_.length - 1;
+        int ix = home(h);
+        for (int dist = 0; ; dist++, ix = (ix + 1) & mask) {
+            if (ctrl_[ix] == 0) {
+                setCtrl(ix, tag(h));
+                keys_[ix] = key;
+                values_[ix] = value;
+                hashes_[ix] = h;
+                maxProbe_ = Math.max(maxProbe_, dist);
+                return;
+            }
+
+            int d = (ix - home(hashes_[ix])) & mask;
+            if (d < dist) {
+                // take the slot from the richer entry, which goes on probing
+                int h0 = hashes_[ix];
+                K k0 = keys_[ix];
+                V v0 = values_[ix];
+                setCtrl(ix, tag(h));
+                keys_[ix] = key;
+                values_[ix] = value;
+                hashes_[ix] = h;
+                maxProbe_ = Math.max(maxProbe_, dist);
+                h = h0;
+                key = k0;
+                value = v0;
+                dist = d;
+            }
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        int ix = search(key);
+        if (ix < 0)
+            return null;
+
+        V result = values_[ix];
+        int mask = keys_.length - 1;
+        for (;;) {
+            int next = (ix + 1) & mask;
+            if (ctrl_[next] == 0 || ((next - home(hashes_[next])) & mask) == 0)
+                break;
+            setCtrl(ix, ctrl_[next]);
+            keys_[ix] = keys_[next];
+            values_[ix] = values_[next];
+            hashes_[ix] = hashes_[next];
+            ix = next;
+        }
+        setCtrl(ix, (byte)0);
+        keys_[ix] = null;
+        values_[ix] = null;
+        count_--;
+        return result;
+    }
+
+    void rehash() {
+        byte[] ctrl = ctrl_;
+        K[] keys = keys_;
+        V[] values = values_;
+        int[] hashes = hashes_;
+
+        allocate(2 * keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            if (ctrl[i] != 0)
+                insert(hashes[i], keys[i], values[i]);
+        }
+    }
+
+    class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private int ix = 0;
+
+        EntryIterator() {
+            findNext();
+        }
+
+        private void findNext() {
+            while (ix < keys_.length && ctrl_[ix] == 0) {
+                ix++;
+            }
+        }
+
+        public boolean hasNext() {
+            return ix < keys_.length;
+        }
+
+        public Map.Entry<K, V> next() {
+            if (! hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            final int slot = ix++;
+            findNext();
+            return new SimpleEntry<K, V>(keys_[slot], values_[slot]) {
+                @Override
+                public V setValue(V value) {
+                    super.setValue(value);
+                    V before = values_[slot];
+                    values_[slot] = value;
+                    return before;
+                }
+            };
+        }
+    }
+
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            public int size() {
+                return count_;
+            }
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator();
+            }
+        };
+    }
+
+    public static void main(String[] args) {
+        RobinHoodHashTable<String, String> table = new RobinHoodHashTable<>();
+        table.put("Japan", "Tokyo");
+        table.put("US", "Washington");
+        table.put("UK", "London");
+        table.put("France", "Paris");
+        table.put("Italy", "Rome");
+        table.put("Germany", "Berlin");
+        table.put("Soviet", "Moscow");
+        table.remove("Soviet");
+        table.put("Russia", "Moscow");
+        System.out.println(table);
+
+        RobinHoodHashTable<Integer, Integer> numbers = new RobinHoodHashTable<>();
+        for (int i = 0; i < 1000000; i++) {
+            numbers.put(i, i);
+        }
+        System.out.printf("size: %d, capacity: %d, max probe: %d%n",
+                          numbers.size(), numbers.capacity(), numbers.maxProbe_);
+    }
+}
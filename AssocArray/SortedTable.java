@@ -0,0 +1,68 @@
+/**
+ * Table of which the entries are kept in the order of the keys.
+ * A key is searched by the binary search instead of the linear search,
+ * and the iteration goes in the ascending order of the keys.
+ */
+public class SortedTable<K extends Comparable<? super K>, V> extends Table<K, V> {
+
+    public SortedTable() {
+        super();
+    }
+
+    public SortedTable(int n) {
+        super(n);
+    }
+
+    // returns the index of KEY if found, or else (-(insertion point) - 1)
+    protected int bin_search(Object key) {
+        if (key == null)
+            return -1;
+
+        K k = (K)key;
+        int lo = 0;
+        int hi = table_.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = table_.get(mid).getKey().compareTo(k);
+            if (cmp < 0)
+                lo = mid + 1;
+            else if (cmp > 0)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -(lo + 1);
+    }
+
+    @Override
+    protected int index(Object key) {
+        return bin_search(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        if (key == null)
+            throw new NullPointerException();
+
+        int ix = index(key);
+        if (ix >= 0) {
+            return table_.get(ix).setValue(value);
+        }
+        else {
+            table_.add(-(ix + 1), new Entry(key, value));
+            return null;
+        }
+    }
+
+    public static void main(String[] args) {
+        var caps = new SortedTable<String, String>();
+        caps.put("Japan", "Edo");
+        caps.put("UK", "London");
+        caps.put("Soviet", "Moscow");
+        caps.put("France", "Paris");
+        System.out.println(caps);
+        caps.put("Japan", "Tokyo");
+        caps.remove("Soviet");
+        System.out.println(caps);
+    }
+}
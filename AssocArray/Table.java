@@ -1,4 +1,5 @@
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.Iterator;
@@ -10,6 +11,7 @@ public class Table<K, V> extends AbstractMap<K, V> {
     class Entry extends SimpleEntry<K, V> {
         K key;
         V value;
+        int ix;             // the position in table_ while index_ is in use
 
         public Entry(K key, V value) {
             super(key, value);
@@ -20,6 +22,14 @@ public class Table<K, V> extends AbstractMap<K, V> {
 
     protected ArrayList<Map.Entry<K,V>> table_;
 
+    // Beyond INDEX_THRESHOLD entries, index_ maps each key to its entry,
+    // which holds its position in table_.  It is built on the first lookup,
+    // kept in step by put and remove, and dropped when the table gets small
+    // again.  A removal renumbers the entries after the removed one, which
+    // table_ moves down anyway, so it allocates nothing.
+    static final int INDEX_THRESHOLD = 16;
+    protected HashMap<Object, Entry> index_ = null;
+
     public Table() {
         table_ = new ArrayList<>();
     }
@@ -35,7 +45,23 @@ public class Table<K, V> extends AbstractMap<K, V> {
 	    }
 
 	    public Iterator<Map.Entry<K, V>> iterator() {
-		    return table_.iterator();
+		    Iterator<Map.Entry<K, V>> it = table_.iterator();
+		    return new Iterator<Map.Entry<K, V>>() {
+			Map.Entry<K, V> last;
+			int ix = -1;    // the position of last
+			public boolean hasNext() {
+			    return it.hasNext();
+			}
+			public Map.Entry<K, V> next() {
+			    last = it.next();
+			    ix++;
+			    return last;
+			}
+			public void remove() {
+			    it.remove();
+			    unindex(ix--, last.getKey());
+			}
+		    };
 	    }
 	};
     }    
@@ -43,6 +69,7 @@ public class Table<K, V> extends AbstractMap<K, V> {
     @Override
     public void clear() {
         table_.clear();
+        index_ = null;
     }
 
     protected int lin_search(Object key) {
@@ -56,8 +83,39 @@ public class Table<K, V> extends AbstractMap<K, V> {
         return -1;
     }
 
+    protected int hash_search(Object key) {
+        if (index_ == null) {
+            index_ = new HashMap<>(2 * table_.size());
+            for (int ix = 0; ix < table_.size(); ix++) {
+                Entry ent = (Entry)table_.get(ix);
+                ent.ix = ix;
+                if (ent.getKey() != null)
+                    index_.put(ent.getKey(), ent);
+            }
+        }
+        Entry ent = index_.get(key);
+        return ent != null ? ent.ix : -1;
+    }
+
+    // keeps the index in step after the entry of KEY at IX is removed from table_
+    protected void unindex(int ix, Object key) {
+        if (index_ == null)
+            return;
+        if (table_.size() <= INDEX_THRESHOLD) {
+            index_ = null;
+            return;
+        }
+        index_.remove(key);
+        for (; ix < table_.size(); ix++) {
+            ((Entry)table_.get(ix)).ix = ix;
+        }
+    }
+
     protected int index(Object key) {
-        return lin_search(key);
+        if (key == null || table_.size() <= INDEX_THRESHOLD)
+            return lin_search(key);
+        else
+            return hash_search(key);
     }
 
     @Override
@@ -79,7 +137,11 @@ public class Table<K, V> extends AbstractMap<K, V> {
             return before;
         }
         else {
-            table_.add(new Entry(key, value));
+            Entry ent = new Entry(key, value);
+            ent.ix = table_.size();
+            table_.add(ent);
+            if (index_ != null && key != null)
+                index_.put(key, ent);
             return null;
         }
     }
@@ -89,6 +151,7 @@ public class Table<K, V> extends AbstractMap<K, V> {
         int ix = index(key);
         if (ix >= 0) {
             Map.Entry<K,V> removed = table_.remove(ix);
+            unindex(ix, key);
             return removed.getValue();
         }
         else
@@ -105,5 +168,14 @@ public class Table<K, V> extends AbstractMap<K, V> {
         System.out.println(caps);
         caps.put("Japan", "Tokyo");  // entry replacement
         System.out.println(caps);
+
+        var squares = new Table<Integer, Integer>();
+        for (int i = 0; i < 100000; i++) {
+            squares.put(i, i * i);        // indexed beyond INDEX_THRESHOLD entries
+        }
+        squares.remove(3);
+        squares.keySet().removeIf(k -> k % 1000 == 500);
+        squares.put(3, 9);
+        System.out.println(squares.get(99999) + " " + squares.get(3) + " " + squares.get(1500) + " " + squares.size());
     }
 }
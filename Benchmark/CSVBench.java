@@ -0,0 +1,143 @@
+package algorithm;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * CSV.read of a generated file of 1MB, or of 1GB with -p size=1g.
+ * (A 1GB table needs a heap of several GB: -jvmArgs -Xmx16g.)
+ * MappedCSV scans the same file in place, without and with decoding, and
+ * ParallelCSV reads it on the common fork/join pool, and ColumnarCSV
+ * loads it into typed columns.  CSVWriter writes the table back through
+ * a Writer and through a FileChannel.  A score is for the whole file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CSVBench {
+    static final String ROW = "12345,plain text,\"quoted, with comma\",3.14159,\"say \"\"hi\"\"\"\r\n";
+
+    @State(Scope.Benchmark)
+    public static class Input {
+        // with a suffix k, m or g
+        @Param({"1m"})
+        String size;
+
+        Path path;
+
+        static long parseSize(String s) {
+            long unit = 1;
+            switch (Character.toLowerCase(s.charAt(s.length() - 1))) {
+                case 'k': unit = 1L << 10; break;
+                case 'm': unit = 1L << 20; break;
+                case 'g': unit = 1L << 30; break;
+            }
+            String digits = unit == 1 ? s : s.substring(0, s.length() - 1);
+            return Long.parseLong(digits) * unit;
+        }
+
+        @Setup
+        public void setup() throws IOException {
+            long bytes = parseSize(size);
+            path = Files.createTempFile("bench", ".csv");
+            try (Writer w = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                for (long n = 0; n < bytes; n += ROW.length()) {
+                    w.write(ROW);
+                }
+            }
+            prepare();
+        }
+
+        void prepare() throws IOException {
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    // the table read from the input, and a file to write it to
+    @State(Scope.Benchmark)
+    public static class Rows extends Input {
+        List<List<String>> table;
+        Path out;
+
+        @Override
+        void prepare() throws IOException {
+            try (Reader r = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                table = CSV.read(r);
+            }
+            out = Files.createTempFile("bench", ".csv");
+        }
+
+        @TearDown
+        public void deleteOutput() throws IOException {
+            Files.deleteIfExists(out);
+        }
+    }
+
+    @Benchmark
+    public List<List<String>> read(Input in) throws IOException {
+        try (Reader r = Files.newBufferedReader(in.path, StandardCharsets.UTF_8)) {
+            return CSV.read(r);
+        }
+    }
+
+    @Benchmark
+    public long mappedScan(Input in) throws IOException {
+        try (MappedCSV csv = MappedCSV.open(in.path)) {
+            long cells = 0;
+            while (csv.nextRow()) {
+                cells += csv.cellCount();
+            }
+            return cells;
+        }
+    }
+
+    @Benchmark
+    public long mappedDecode(Input in) throws IOException {
+        try (MappedCSV csv = MappedCSV.open(in.path)) {
+            long chars = 0;
+            while (csv.nextRow()) {
+                for (int i = 0; i < csv.cellCount(); i++) {
+                    chars += csv.cellString(i).length();
+                }
+            }
+            return chars;
+        }
+    }
+
+    @Benchmark
+    public ColumnarCSV columnarLoad(Input in) throws IOException {
+        return ColumnarCSV.load(in.path, ColumnarCSV.Type.INT, ColumnarCSV.Type.STRING,
+                                ColumnarCSV.Type.STRING, ColumnarCSV.Type.DOUBLE,
+                                ColumnarCSV.Type.STRING);
+    }
+
+    @Benchmark
+    public List<List<String>> parallelRead(Input in) throws IOException {
+        return ParallelCSV.read(in.path);
+    }
+
+    @Benchmark
+    public void writeWriter(Rows rows) throws IOException {
+        try (Writer w = Files.newBufferedWriter(rows.out, StandardCharsets.UTF_8)) {
+            CSV.write(w, rows.table);
+        }
+    }
+
+    @Benchmark
+    public void writeChannel(Rows rows) throws IOException {
+        try (CSVWriter w = CSVWriter.open(rows.out)) {
+            w.writeAll(rows.table);
+        }
+    }
+}
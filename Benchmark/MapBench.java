@@ -0,0 +1,87 @@
+package algorithm;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * get/put/remove of HashTable, RobinHoodHashTable, Table and HashMap at
+ * several sizes and load factors.
+ *
+ * put fills a new map with all the keys, so that it includes the growth;
+ * its score is for the whole map.  get and remove+put take one key of a
+ * full map per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapBench {
+    @Param({"100", "10000", "1000000"})
+    int size;
+
+    // HashTable/4n is presized to a load of 1/4 at most
+    @Param({"HashTable", "HashTable/4n", "HashTable/incremental", "RobinHoodHashTable", "Table",
+            "HashMap/0.75", "HashMap/0.5"})
+    String map;
+
+    Integer[] keys;
+    Map<Integer, Integer> full;
+    int next = 0;
+
+    Map<Integer, Integer> create() {
+        switch (map) {
+            case "HashTable":             return new HashTable<>();
+            case "HashTable/4n":          return new HashTable<>(4 * size);
+            case "HashTable/incremental": return new HashTable<>(10, true);
+            case "RobinHoodHashTable":    return new RobinHoodHashTable<>();
+            case "Table":                 return new Table<>();
+            case "HashMap/0.75":          return new HashMap<>();
+            case "HashMap/0.5":           return new HashMap<>(16, 0.5f);
+        }
+        throw new IllegalArgumentException("map: " + map);
+    }
+
+    @Setup
+    public void setup() {
+        keys = new Integer[size];
+        Random random = new Random(size);
+        for (int i = 0; i < size; i++) {
+            keys[i] = random.nextInt();
+        }
+        full = create();
+        for (Integer k: keys) {
+            full.put(k, k);
+        }
+    }
+
+    Integer nextKey() {
+        Integer k = keys[next];
+        next = next + 1 == size ? 0 : next + 1;
+        return k;
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> put() {
+        Map<Integer, Integer> m = create();
+        for (Integer k: keys) {
+            m.put(k, k);
+        }
+        return m;
+    }
+
+    @Benchmark
+    public Integer get() {
+        return full.get(nextKey());
+    }
+
+    @Benchmark
+    public Integer removePut() {
+        Integer k = nextKey();
+        full.remove(k);
+        return full.put(k, k);
+    }
+}
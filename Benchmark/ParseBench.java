@@ -0,0 +1,198 @@
+package algorithm;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * String2int and DigitUtil against the parsing and formatting of the JDK,
+ * and ISBNBatch against DigitUtil.isValidISBN10/13 one code at a time.
+ *
+ * Every benchmark goes over N random numbers or codes; the scores are per
+ * number or code.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBench {
+    static final int N = 4096;
+
+    int[] ints = new int[N];
+    long[] longs = new long[N];
+    String[] intStrings = new String[N];
+    String[] longStrings = new String[N];
+    String[] hexStrings = new String[N];
+    byte[][] intBytes = new byte[N][];
+    byte[][] hexBytes = new byte[N][];
+    byte[] buffer;                  // longStrings joined with commas
+    long[] value = new long[1];
+    char[] chars = new char[20];
+
+    String[] isbns = new String[N];
+    ByteBuffer isbnBuffer;          // isbns, one per line
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        for (int i = 0; i < N; i++) {
+            ints[i] = random.nextInt() & Integer.MAX_VALUE;
+            longs[i] = random.nextLong() & Long.MAX_VALUE;
+            intStrings[i] = Integer.toString(ints[i]);
+            longStrings[i] = Long.toString(longs[i]);
+            hexStrings[i] = Integer.toHexString(ints[i]);
+            intBytes[i] = intStrings[i].getBytes();
+            hexBytes[i] = hexStrings[i].getBytes();
+        }
+        buffer = (String.join(",", longStrings) + ",").getBytes();
+
+        StringBuilder isbnLines = new StringBuilder();
+        for (int i = 0; i < N; i++) {
+            String digits = Long.toString(9780000000000L + longs[i] % 10000000000L);
+            isbns[i] = digits.substring(0, 3) + "-" + digits.substring(3, 4) + "-" + digits.substring(4, 12)
+                     + "-" + (random.nextBoolean() ? DigitUtil.checkDigitISBN13(digits.substring(0, 12)) : '0');
+            isbnLines.append(isbns[i]).append('\n');
+        }
+        isbnBuffer = ByteBuffer.wrap(isbnLines.toString().getBytes());
+    }
+
+    @Benchmark @OperationsPerInvocation(N)
+    public void string2intString2long(Blackhole bh) {
+        for (String s: longStrings) {
+            bh.consume(String2int.string2long(s));
+        }
+    }
+
+    @Benchmark @OperationsPerInvocation(N)
+    public void string2intParseLongBytes(Blackhole bh) {
+        for (int pos = 0; pos < buffer.length; pos++) {
+            pos = String2int.parseLong(buffer, pos, buffer.length, value);
+            bh.consume(value[0]);
+        }
+    }
+
+    @Benchmark @OperationsPerInvocation(N)
+    public void longParseLong(Blackhole bh) {
+        for (String s: longStrings) {
+            bh.consume(Long.parseLong(s));
+        }
+    }
+
+    @Benchmark @OperationsPerInvocation(N)
+    public void digitUtilParseLong(Blackhole bh) {
+        for (String s: longStrings) {
+            bh.consume(DigitUtil.parseLong(s));
+        }
+    }
+
+    @Benchmark @OperationsPerInvocation(N)
+    public void digitUtilParseInt(Blackhole bh) {
+        for (String s: intStrings) {
+            bh.consume(DigitUtil.parseInt(s));
+        }
+    }
+
+    @Benchmark @OperationsPerInvocation(N)
+    public void digitUtilParseIntBytes(Blackhole bh) {
+        for (byte[] b: intBytes) {
+            bh.consume(DigitUtil.parseInt(b, 0, b.length));
+        }
+    }
+
+    @Benchmark @OperationsPerInvocation(N)
+    public void integerParseInt(Blackhole bh) {
+        for (String s: intStrings) {
+            bh.consume(Integer.parseInt(s));
+        }
+    }
+
+    @Benchmark @OperationsPerInvocation(N)
+    public void digitUtilParseIntHex(Blackhole bh) {
+        for (String s: hexStrings) {
+            bh.consume(DigitUtil.parseInt(s, 16));
+        }
+    }
+
+    @Benchmark @OperationsPerInvocation(N)
+    public void digitUtilParseIntBytesHex(Blackhole bh) {
+        for (byte[] b: hexBytes) {
+            bh.consume(DigitUtil.parseInt(b, 0, b.length, 16));
+        }
+    }
+
+    @Benchmark @OperationsPerInvocation(N)
+    public void integerParseUnsignedIntHex(Blackhole bh) {
+        for (String s: hexStrings) {
+            bh.consume(Integer.parseUnsignedInt(s, 16));
+        }
+    }
+
+    @Benchmark @OperationsPerInvocation(N)
+    public void digitUtilStringOfInt(Blackhole bh) {
+        for (int x: ints) {
+            bh.consume(DigitUtil.stringOf(x));
+        }
+    }
+
+    @Benchmark @OperationsPerInvocation(N)
+    public void digitUtilFormatInt(Blackhole bh) {
+        for (int x: ints) {
+            bh.consume(DigitUtil.format(x, 10, chars, 0));
+        }
+    }
+
+    @Benchmark @OperationsPerInvocation(N)
+    public void integerToString(Blackhole bh) {
+        for (int x: ints) {
+            bh.consume(Integer.toString(x));
+        }
+    }
+
+    @Benchmark @OperationsPerInvocation(N)
+    public void digitUtilStringOfLong(Blackhole bh) {
+        for (long x: longs) {
+            bh.consume(DigitUtil.stringOf(x));
+        }
+    }
+
+    @Benchmark @OperationsPerInvocation(N)
+    public void digitUtilFormatLong(Blackhole bh) {
+        for (long x: longs) {
+            bh.consume(DigitUtil.format(x, 10, chars, 0));
+        }
+    }
+
+    @Benchmark @OperationsPerInvocation(N)
+    public void longToString(Blackhole bh) {
+        for (long x: longs) {
+            bh.consume(Long.toString(x));
+        }
+    }
+
+    @Benchmark @OperationsPerInvocation(N)
+    public void digitUtilIsValidISBN13(Blackhole bh) {
+        for (String s: isbns) {
+            bh.consume(DigitUtil.isValidISBN13(s));
+        }
+    }
+
+    @Benchmark @OperationsPerInvocation(N)
+    public int isbnBatchValidate() {
+        return ISBNBatch.validate(isbns).validCount();
+    }
+
+    @Benchmark @OperationsPerInvocation(N)
+    public int isbnBatchValidateParallel() {
+        return ISBNBatch.validate(isbns, true).validCount();
+    }
+
+    @Benchmark @OperationsPerInvocation(N)
+    public int isbnBatchValidateByteBuffer() {
+        return ISBNBatch.validate(isbnBuffer, false).validCount();
+    }
+}
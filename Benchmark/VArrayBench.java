@@ -0,0 +1,186 @@
+package algorithm;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * add/get of the VArrays against ArrayList.
+ *
+ * Every benchmark goes over all the elements once, so a score is for size
+ * operations.  add starts from a new array, so that it includes the growth.
+ * The boxed lists are compared through List; IntVArray, LongVArray,
+ * DoubleVArray and OffHeapVArray, whose elements are not objects, have
+ * benchmarks of their own.  parallelAdd appends from the threads of the
+ * common fork/join pool, to ConcurrentVArray without a lock and to a
+ * synchronized ArrayList.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VArrayBench {
+    @State(Scope.Benchmark)
+    public static class Data {
+        @Param({"1000", "1000000"})
+        int size;
+
+        Integer[] boxed;
+        IntVArray ints;
+        LongVArray longs;
+        DoubleVArray doubles;
+        OffHeapVArray offHeap;
+
+        @Setup
+        public void setup() {
+            boxed = new Integer[size];
+            ints = new IntVArray();
+            longs = new LongVArray();
+            doubles = new DoubleVArray();
+            offHeap = new OffHeapVArray();
+            for (int i = 0; i < size; i++) {
+                boxed[i] = i;
+                ints.add(i);
+                longs.add(i);
+                doubles.add(i);
+                offHeap.add(i);
+            }
+            prepare();
+        }
+
+        void prepare() {
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Lists extends Data {
+        @Param({"VArray", "ChunkedVArray", "ConcurrentVArray", "ArrayList"})
+        String list;
+
+        List<Integer> full;
+
+        List<Integer> create() {
+            switch (list) {
+                case "VArray":           return new VArray<>();
+                case "ChunkedVArray":    return new ChunkedVArray<>();
+                case "ConcurrentVArray": return new ConcurrentVArray<>();
+                case "ArrayList":        return new ArrayList<>();
+            }
+            throw new IllegalArgumentException("list: " + list);
+        }
+
+        @Override
+        void prepare() {
+            full = create();
+            full.addAll(Arrays.asList(boxed));
+        }
+    }
+
+    @Benchmark
+    public List<Integer> add(Lists s) {
+        List<Integer> xs = s.create();
+        for (Integer x: s.boxed) {
+            xs.add(x);
+        }
+        return xs;
+    }
+
+    @Benchmark
+    public long get(Lists s) {
+        List<Integer> xs = s.full;
+        long sum = 0;
+        for (int i = 0; i < s.size; i++) {
+            sum += xs.get(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public IntVArray intVArrayAdd(Data s) {
+        IntVArray xs = new IntVArray();
+        for (int i = 0; i < s.size; i++) {
+            xs.add(i);
+        }
+        return xs;
+    }
+
+    @Benchmark
+    public long intVArrayGet(Data s) {
+        long sum = 0;
+        for (int i = 0; i < s.size; i++) {
+            sum += s.ints.get(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public LongVArray longVArrayAdd(Data s) {
+        LongVArray xs = new LongVArray();
+        for (int i = 0; i < s.size; i++) {
+            xs.add(i);
+        }
+        return xs;
+    }
+
+    @Benchmark
+    public long longVArrayGet(Data s) {
+        long sum = 0;
+        for (int i = 0; i < s.size; i++) {
+            sum += s.longs.get(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public DoubleVArray doubleVArrayAdd(Data s) {
+        DoubleVArray xs = new DoubleVArray();
+        for (int i = 0; i < s.size; i++) {
+            xs.add(i);
+        }
+        return xs;
+    }
+
+    @Benchmark
+    public double doubleVArrayGet(Data s) {
+        double sum = 0;
+        for (int i = 0; i < s.size; i++) {
+            sum += s.doubles.get(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public OffHeapVArray offHeapVArrayAdd(Data s) {
+        OffHeapVArray xs = new OffHeapVArray();
+        for (int i = 0; i < s.size; i++) {
+            xs.add(i);
+        }
+        return xs;
+    }
+
+    @Benchmark
+    public long offHeapVArrayGet(Data s) {
+        long sum = 0;
+        for (int i = 0; i < s.size; i++) {
+            sum += s.offHeap.getLong(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public List<Integer> concurrentVArrayParallelAdd(Data s) {
+        List<Integer> xs = new ConcurrentVArray<>();
+        IntStream.range(0, s.size).parallel().forEach(i -> xs.add(s.boxed[i]));
+        return xs;
+    }
+
+    @Benchmark
+    public List<Integer> synchronizedArrayListParallelAdd(Data s) {
+        List<Integer> xs = Collections.synchronizedList(new ArrayList<>());
+        IntStream.range(0, s.size).parallel().forEach(i -> xs.add(s.boxed[i]));
+        return xs;
+    }
+}
@@ -1,122 +1,16 @@
 import java.io.*;
 import java.util.*;
 
-enum State {
-    SEPERATOR, CELL, QUOTED_CELL, QUOTED_QUOTE
-}
-
 public class CSV {
     static final int EOF = -1;
 
     public static List<List<String>> read(Reader reader) throws IOException {
-        PushbackReader r = new PushbackReader(reader);
+        CSVReader r = new CSVReader(reader);
         List<List<String>> table = new ArrayList<List<String>>();
-        List<String> row = new ArrayList<String>();
-        StringBuilder buf = new StringBuilder();
-
-        State st = State.SEPERATOR;
-        for (;;) {
-            int c = r.read();
-            switch (st) {
-                case SEPERATOR:
-                    switch (c) {
-                        case ',':
-                            row.add("");
-                            continue;
-                        case '\"':
-                            buf.setLength(0);
-                            st = State.QUOTED_CELL;
-                            continue;
-                        case ' ': case '\t':
-                            continue;
-                        case '\r':
-                            c = r.read();
-                            if (c != '\n')
-                                r.unread(c);
-                            // fallthrough
-                        case '\n':
-                            row.add("");
-                            table.add(row);
-                            row = new ArrayList<String>();
-                            continue;
-                        case EOF:
-                            row.add("");
-                            table.add(row);
-                            return table;
-                        default:
-                            buf.setLength(0);
-                            buf.appendCodePoint(c);
-                            st = State.CELL;
-                            continue;
-                    }
-                case CELL:
-                    switch (c) {
-                        case ',':
-                            row.add(buf.toString());
-                            st = State.SEPERATOR;
-                            continue;
-                        case '\r':
-                            c = r.read();
-                            if (c != '\n')
-                                r.unread(c);
-                            // fallthrough
-                        case '\n':
-                            row.add(buf.toString());
-                            table.add(row);
-                            row = new ArrayList<String>();
-                            st = State.SEPERATOR;
-                            continue;
-                        case EOF:
-                            row.add(buf.toString());
-                            table.add(row);
-                            return table;
-                        default:
-                            buf.appendCodePoint(c);
-                            continue;
-                    }
-                case QUOTED_CELL:
-                    switch (c) {
-                        case '\"':
-                            st = State.QUOTED_QUOTE;
-                            continue;
-                        case EOF:
-                            row.add(buf.toString());
-                            table.add(row);
-                            return table;
-                        default:
-                            buf.appendCodePoint(c);
-                            continue;
-                    }
-                case QUOTED_QUOTE:
-                    switch (c) {
-                        case ',':
-                            row.add(buf.toString());
-                            st = State.SEPERATOR;
-                            continue;
-                        case '\r':
-                            c = r.read();
-                            if (c != '\n')
-                                r.unread(c);
-                            // fallthrough
-                        case '\n':
-                            row.add(buf.toString());
-                            table.add(row);
-                            row = new ArrayList<String>();
-                            st = State.SEPERATOR;
-                            continue;
-                        case EOF:
-                            row.add(buf.toString());
-                            table.add(row);
-                            return table;
-                        case '\"':
-                            buf.append('\"');
-                            st = State.QUOTED_CELL;
-                            continue;
-                        default:
-                            throw new IllegalArgumentException("Cell not enclosed by quotation marks");
-                    }
-            }
+        for (List<String> row; (row = r.readRow()) != null; ) {
+            table.add(new ArrayList<String>(row));
         }
+        return table;
     }
 
     static final boolean hasQuote(String str) {
@@ -154,19 +48,7 @@ public class CSV {
     }
 
     public static void write(Writer w, List<? extends List<? extends Object>> table) throws IOException {
-        for (List<? extends Object> row: table) {
-            boolean firstColumn = true;
-            for (Object cell: row) {
-                if (firstColumn) {
-                    firstColumn = false;
-                }
-                else {
-                    w.append(',');
-                }
-                w.append(quoteIfNecessary(cell));
-            }
-            w.append("\r\n");
-        }
+        new CSVWriter(w).writeAll(table).drain(false);
     }
 
     public static void main(String[] args) throws IOException {
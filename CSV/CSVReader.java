@@ -0,0 +1,199 @@
+import java.io.*;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Row by row CSV reader.
+ *
+ * It runs the state machine of CSV.read, returning each row as soon as it
+ * ends, so the memory it needs depends on the longest row and not on the
+ * size of the input.  The row list and the cell buffer are reused: a row
+ * from readRow, next or forEachRow is valid until the next row is read.
+ * Copy it to keep it; stream() does so.
+ */
+public class CSVReader implements Iterator<List<String>>, Closeable {
+    static final int EOF = -1;
+
+    enum State {
+        SEPERATOR, CELL, QUOTED_CELL, QUOTED_QUOTE
+    }
+
+    private final Reader reader_;
+    private final char[] buf_ = new char[8192];
+    private int pos_ = 0;
+    private int lim_ = 0;
+
+    private final ArrayList<String> row_ = new ArrayList<String>();
+    private final StringBuilder cell_ = new StringBuilder();
+    private boolean done_ = false;
+    private List<String> next_ = null;
+
+    public CSVReader(Reader reader) {
+        reader_ = reader;
+    }
+
+    private int read() throws IOException {
+        if (pos_ >= lim_) {
+            lim_ = reader_.read(buf_, 0, buf_.length);
+            pos_ = 0;
+            if (lim_ <= 0) {
+                lim_ = 0;
+                return EOF;
+            }
+        }
+        return buf_[pos_++];
+    }
+
+    // after '\r', takes the following '\n' if any
+    private void skipLF() throws IOException {
+        int c = read();
+        if (c != '\n' && c != EOF)
+            pos_--;
+    }
+
+    private List<String> endRow(String cell) {
+        row_.add(cell);
+        return row_;
+    }
+
+    private List<String> endFile(String cell) {
+        done_ = true;
+        return endRow(cell);
+    }
+
+    /** Returns the next row, or null at the end of the input. */
+    public List<String> readRow() throws IOException {
+        if (done_)
+            return null;
+
+        row_.clear();
+        State st = State.SEPERATOR;
+        for (;;) {
+            int c = read();
+            switch (st) {
+                case SEPERATOR:
+                    switch (c) {
+                        case ',':
+                            row_.add("");
+                            continue;
+                        case '\"':
+                            cell_.setLength(0);
+                            st = State.QUOTED_CELL;
+                            continue;
+                        case ' ': case '\t':
+                            continue;
+                        case '\r':
+                            skipLF();
+                            // fallthrough
+                        case '\n':
+                            return endRow("");
+                        case EOF:
+                            return endFile("");
+                        default:
+                            cell_.setLength(0);
+                            cell_.append((char)c);
+                            st = State.CELL;
+                            continue;
+                    }
+                case CELL:
+                    switch (c) {
+                        case ',':
+                            row_.add(cell_.toString());
+                            st = State.SEPERATOR;
+                            continue;
+                        case '\r':
+                            skipLF();
+                            // fallthrough
+                        case '\n':
+                            return endRow(cell_.toString());
+                        case EOF:
+                            return endFile(cell_.toString());
+                        default:
+                            cell_.append((char)c);
+                            continue;
+                    }
+                case QUOTED_CELL:
+                    switch (c) {
+                        case '\"':
+                            st = State.QUOTED_QUOTE;
+                            continue;
+                        case EOF:
+                            return endFile(cell_.toString());
+                        default:
+                            cell_.append((char)c);
+                            continue;
+                    }
+                case QUOTED_QUOTE:
+                    switch (c) {
+                        case ',':
+                            row_.add(cell_.toString());
+                            st = State.SEPERATOR;
+                            continue;
+                        case '\r':
+                            skipLF();
+                            // fallthrough
+                        case '\n':
+                            return endRow(cell_.toString());
+                        case EOF:
+                            return endFile(cell_.toString());
+                        case '\"':
+                            cell_.append('\"');
+                            st = State.QUOTED_CELL;
+                            continue;
+                        default:
+                            throw new IllegalArgumentException("Cell not enclosed by quotation marks");
+                    }
+            }
+        }
+    }
+
+    public boolean hasNext() {
+        if (next_ == null) {
+            try {
+                next_ = readRow();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next_ != null;
+    }
+
+    public List<String> next() {
+        if (! hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<String> result = next_;
+        next_ = null;
+        return result;
+    }
+
+    /** Calls ACTION with every remaining row. */
+    public void forEachRow(Consumer<? super List<String>> action) throws IOException {
+        if (next_ != null)
+            action.accept(next());
+        for (List<String> row; (row = readRow()) != null; ) {
+            action.accept(row);
+        }
+    }
+
+    /** The remaining rows, each copied so that it may be kept. */
+    public Stream<List<String>> stream() {
+        Spliterator<List<String>> rows =
+            Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(rows, false).map(List::copyOf);
+    }
+
+    public void close() throws IOException {
+        reader_.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        CSVReader r = new CSVReader(new StringReader("name, capital\nJapan, Tokyo\r\n\"United Kingdom\", London"));
+        r.forEachRow(row -> System.out.println(row.size() + " " + row));
+
+        r = new CSVReader(new StringReader("1,2,3\n4,\"5,6\",7\n"));
+        System.out.println(r.stream().filter(row -> row.size() == 3).count() + " rows of 3 cells");
+    }
+}
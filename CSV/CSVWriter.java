@@ -0,0 +1,278 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Buffered CSV writer.
+ *
+ * Cells are formatted into one reusable char buffer, which goes to a
+ * Writer, or to a FileChannel as UTF-8, only when it is full.  The output
+ * is the same as that of CSV.write: a cell with a comma or a line end is
+ * quoted with its quotes doubled, any other cell is trimmed, and a row
+ * ends with CRLF.  A cell is copied once on the assumption that it needs
+ * no quotes; only if a comma or a line end turns up is it written again,
+ * quoted.  Integers are formatted in the buffer without a String.
+ */
+public class CSVWriter implements Closeable, Flushable {
+    static final int BUFFER_SIZE = 1 << 16;
+
+    private final Writer writer_;           // null in channel mode
+    private final FileChannel channel_;     // null in writer mode
+    private final CharsetEncoder encoder_;
+    private final ByteBuffer bytes_;
+
+    private char[] buf_ = new char[BUFFER_SIZE];
+    private int pos_ = 0;
+    private boolean firstColumn_ = true;
+
+    public CSVWriter(Writer writer) {
+        writer_ = writer;
+        channel_ = null;
+        encoder_ = null;
+        bytes_ = null;
+    }
+
+    public CSVWriter(FileChannel channel) {
+        writer_ = null;
+        channel_ = channel;
+        encoder_ = StandardCharsets.UTF_8.newEncoder();
+        bytes_ = ByteBuffer.allocateDirect(4 * BUFFER_SIZE);
+    }
+
+    /** Writes PATH as UTF-8 through a FileChannel, replacing the file. */
+    public static CSVWriter open(Path path) throws IOException {
+        return new CSVWriter(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                              StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    // hands the buffer to the Writer or the channel, but flushes neither
+    void drain(boolean end) throws IOException {
+        if (writer_ != null) {
+            writer_.write(buf_, 0, pos_);
+            pos_ = 0;
+            return;
+        }
+
+        CharBuffer in = CharBuffer.wrap(buf_, 0, pos_);
+        for (;;) {
+            CoderResult r = encoder_.encode(in, bytes_, end);
+            if (r.isError())
+                r.throwException();
+            if (end && r.isUnderflow())
+                r = encoder_.flush(bytes_);
+            bytes_.flip();
+            while (bytes_.hasRemaining()) {
+                channel_.write(bytes_);
+            }
+            bytes_.clear();
+            if (r.isUnderflow())
+                break;
+        }
+        // the high surrogate of a pair that goes on in the next block
+        int rest = in.remaining();
+        System.arraycopy(buf_, pos_ - rest, buf_, 0, rest);
+        pos_ = rest;
+    }
+
+    // makes room for N more chars
+    private void reserve(int n) throws IOException {
+        if (pos_ + n <= buf_.length)
+            return;
+        drain(false);
+        if (pos_ + n > buf_.length)
+            buf_ = Arrays.copyOf(buf_, Math.max(pos_ + n, 2 * buf_.length));
+    }
+
+    private void separator() throws IOException {
+        if (firstColumn_) {
+            firstColumn_ = false;
+        }
+        else {
+            reserve(1);
+            buf_[pos_++] = ',';
+        }
+    }
+
+    public CSVWriter writeCell(CharSequence cell) throws IOException {
+        separator();
+
+        int len = cell.length();
+        int a = 0;
+        int b = len;
+        // String.trim; a line end among the trimmed chars still quotes the cell
+        for (; a < b && cell.charAt(a) <= ' '; a++) {
+            if (cell.charAt(a) == '\n' || cell.charAt(a) == '\r') {
+                writeQuoted(pos_, cell);
+                return this;
+            }
+        }
+        for (; a < b && cell.charAt(b - 1) <= ' '; b--) {
+            if (cell.charAt(b - 1) == '\n' || cell.charAt(b - 1) == '\r') {
+                writeQuoted(pos_, cell);
+                return this;
+            }
+        }
+
+        reserve(b - a);
+        int start = pos_;
+        if (cell instanceof String) {
+            ((String)cell).getChars(a, b, buf_, pos_);
+        }
+        else {
+            for (int i = a; i < b; i++) {
+                buf_[pos_ + i - a] = cell.charAt(i);
+            }
+        }
+        int end = start + b - a;
+        for (int i = start; i < end; i++) {
+            char c = buf_[i];
+            if (c == ',' || c == '\n' || c == '\r') {
+                writeQuoted(start, cell);
+                return this;
+            }
+        }
+        pos_ = end;
+        return this;
+    }
+
+    // rewinds to START and writes CELL untrimmed in quotes
+    private void writeQuoted(int start, CharSequence cell) throws IOException {
+        pos_ = start;
+        int len = cell.length();
+        reserve(2 * len + 2);
+        char[] buf = buf_;
+        int p = pos_;
+        buf[p++] = '\"';
+        for (int i = 0; i < len; i++) {
+            char c = cell.charAt(i);
+            buf[p++] = c;
+            if (c == '\"')
+                buf[p++] = '\"';
+        }
+        buf[p++] = '\"';
+        pos_ = p;
+    }
+
+    static int digits(long n) {
+        // N is not positive
+        long bound = -10;
+        for (int d = 1; d < 19; d++, bound *= 10) {
+            if (n > bound)
+                return d;
+        }
+        return 19;
+    }
+
+    public CSVWriter writeCell(long n) throws IOException {
+        separator();
+        reserve(20);
+        boolean negative = n < 0;
+        // work on the negative value, which Long.MIN_VALUE has
+        long m = negative ? n : -n;
+        int p = pos_ + (negative ? 1 : 0) + digits(m);
+        pos_ = p;
+        do {
+            long q = m / 10;
+            buf_[--p] = (char)('0' + (q * 10 - m));
+            m = q;
+        } while (m != 0);
+        if (negative)
+            buf_[--p] = '-';
+        return this;
+    }
+
+    public CSVWriter writeCell(double x) throws IOException {
+        return writeCell(Double.toString(x));
+    }
+
+    public CSVWriter writeCell(Object cell) throws IOException {
+        if (cell instanceof Long || cell instanceof Integer || cell instanceof Short || cell instanceof Byte)
+            return writeCell(((Number)cell).longValue());
+        if (cell instanceof CharSequence)
+            return writeCell((CharSequence)cell);
+        return writeCell(cell.toString());
+    }
+
+    public CSVWriter endRow() throws IOException {
+        reserve(2);
+        buf_[pos_++] = '\r';
+        buf_[pos_++] = '\n';
+        firstColumn_ = true;
+        return this;
+    }
+
+    public CSVWriter writeRow(List<? extends Object> row) throws IOException {
+        for (Object cell: row) {
+            writeCell(cell);
+        }
+        return endRow();
+    }
+
+    public CSVWriter writeAll(List<? extends List<? extends Object>> table) throws IOException {
+        for (List<? extends Object> row: table) {
+            writeRow(row);
+        }
+        return this;
+    }
+
+    public void flush() throws IOException {
+        drain(false);
+        if (writer_ != null)
+            writer_.flush();
+    }
+
+    public void close() throws IOException {
+        drain(true);
+        if (writer_ != null)
+            writer_.close();
+        else
+            channel_.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<List<Object>> table = new ArrayList<List<Object>>();
+        table.add(Arrays.asList("name", " capital ", "population"));
+        table.add(Arrays.asList("Japan", "Tokyo", 13960000L));
+        table.add(Arrays.asList("United Kingdom", "London, \"the\" City", Long.MIN_VALUE));
+        table.add(Arrays.asList("", "multi\nline", -0.5));
+        // the quoting is decided on the untrimmed cell
+        table.add(Arrays.asList("abc\n", " x\r", "\ty,", "a,b ", "\r\n", "  ", " lead", "trail\t"));
+
+        // the cell by cell CSV.write that this writer replaces
+        StringWriter expected = new StringWriter();
+        Writer old = expected;
+        for (List<Object> row: table) {
+            boolean first = true;
+            for (Object cell: row) {
+                if (! first)
+                    old.append(',');
+                first = false;
+                old.append(CSV.quoteIfNecessary(cell));
+            }
+            old.append("\r\n");
+        }
+
+        StringWriter sw = new StringWriter();
+        try (CSVWriter w = new CSVWriter(sw)) {
+            w.writeAll(table);
+        }
+        System.out.print(sw);
+        System.out.println(sw.toString().equals(expected.toString()));
+
+        Path path = Files.createTempFile("writer", ".csv");
+        try (CSVWriter w = CSVWriter.open(path)) {
+            for (int i = 0; i < 100000; i++) {
+                w.writeCell(i).writeCell("\u65E5\u672C").writeCell(-i * 1000000007L).endRow();
+            }
+        }
+        List<List<String>> back = CSV.read(Files.newBufferedReader(path, StandardCharsets.UTF_8));
+        System.out.println(back.size() + " rows, " + back.get(99999));
+        Files.delete(path);
+    }
+}
@@ -0,0 +1,293 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Table of typed columns loaded from CSV.
+ *
+ * The column types are given; a column of INT, LONG or DOUBLE is an array
+ * of the primitive type, and its cells are parsed straight from the bytes
+ * found by MappedCSV, so that no String is made for them.  Only STRING
+ * cells are decoded.  Blank lines are skipped; a row must have a cell for
+ * every column.
+ */
+public class ColumnarCSV {
+    public enum Type {
+        INT, LONG, DOUBLE, STRING
+    }
+
+    static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final Type[] types_;
+    private final Object[] columns_;    // int[], long[], double[] or String[]
+    private int rows_ = 0;
+    private int capacity_ = 16;
+
+    private ColumnarCSV(Type[] types) {
+        types_ = types.clone();
+        columns_ = new Object[types.length];
+        for (int c = 0; c < types.length; c++) {
+            switch (types[c]) {
+                case INT:    columns_[c] = new int[16];    break;
+                case LONG:   columns_[c] = new long[16];   break;
+                case DOUBLE: columns_[c] = new double[16]; break;
+                case STRING: columns_[c] = new String[16]; break;
+            }
+        }
+    }
+
+    public int rowCount() {
+        return rows_;
+    }
+
+    public int columnCount() {
+        return types_.length;
+    }
+
+    public Type type(int col) {
+        return types_[col];
+    }
+
+    public int[] intColumn(int col) {
+        return (int[])columns_[col];
+    }
+
+    public long[] longColumn(int col) {
+        return (long[])columns_[col];
+    }
+
+    public double[] doubleColumn(int col) {
+        return (double[])columns_[col];
+    }
+
+    public String[] stringColumn(int col) {
+        return (String[])columns_[col];
+    }
+
+    public int getInt(int row, int col) {
+        return intColumn(col)[Objects.checkIndex(row, rows_)];
+    }
+
+    public long getLong(int row, int col) {
+        return longColumn(col)[Objects.checkIndex(row, rows_)];
+    }
+
+    public double getDouble(int row, int col) {
+        return doubleColumn(col)[Objects.checkIndex(row, rows_)];
+    }
+
+    public String getString(int row, int col) {
+        return stringColumn(col)[Objects.checkIndex(row, rows_)];
+    }
+
+    private void resize(int n) {
+        capacity_ = n;
+        for (int c = 0; c < columns_.length; c++) {
+            switch (types_[c]) {
+                case INT:    columns_[c] = Arrays.copyOf((int[])columns_[c], n);    break;
+                case LONG:   columns_[c] = Arrays.copyOf((long[])columns_[c], n);   break;
+                case DOUBLE: columns_[c] = Arrays.copyOf((double[])columns_[c], n); break;
+                case STRING: columns_[c] = Arrays.copyOf((String[])columns_[c], n); break;
+            }
+        }
+    }
+
+    private static NumberFormatException error(ByteBuffer b, int s, int e, String type) {
+        byte[] bytes = new byte[e - s];
+        b.get(s, bytes);
+        return new NumberFormatException("not " + type + ": \"" + new String(bytes, StandardCharsets.UTF_8) + "\"");
+    }
+
+    // Decimal digits with an optional sign, accumulated negatively as
+    // Long.parseLong does, so that MIN reads without overflow.
+    static long parseLong(ByteBuffer b, int s, int e, long min, String type) {
+        int i = s;
+        boolean negative = false;
+        if (i < e && (b.get(i) == '-' || b.get(i) == '+')) {
+            negative = b.get(i) == '-';
+            i++;
+        }
+        if (i == e)
+            throw error(b, s, e, type);
+
+        long limit = negative ? min : min + 1;
+        long multmin = limit / 10;
+        long n = 0;
+        for (; i < e; i++) {
+            int d = b.get(i) - '0';
+            if (d < 0 || 9 < d || n < multmin)
+                throw error(b, s, e, type);
+            n *= 10;
+            if (n < limit + d)
+                throw error(b, s, e, type);
+            n -= d;
+        }
+        return negative ? n : -n;
+    }
+
+    static int parseInt(ByteBuffer b, int s, int e) {
+        return (int)parseLong(b, s, e, Integer.MIN_VALUE, "an int");
+    }
+
+    static long parseLong(ByteBuffer b, int s, int e) {
+        return parseLong(b, s, e, Long.MIN_VALUE, "a long");
+    }
+
+    // Plain decimals of at most 18 digits, so that the mantissa cannot
+    // overflow a long, whose value and power of ten are both exact doubles need one exact multiplication or division (Clinger's
+    // fast path).  Everything else goes to Double.parseDouble.
+    static double parseDouble(ByteBuffer b, int s, int e) {
+        int i = s;
+        boolean negative = false;
+        if (i < e && (b.get(i) == '-' || b.get(i) == '+')) {
+            negative = b.get(i) == '-';
+            i++;
+        }
+
+        long m = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean point = false;
+        boolean any = false;
+        for (; i < e; i++) {
+            int c = b.get(i);
+            if ('0' <= c && c <= '9') {
+                any = true;
+                // leading zeros count for nothing
+                if (m != 0 || c != '0') {
+                    if (++digits > 18)
+                        return slowDouble(b, s, e);
+                    m = 10 * m + (c - '0');
+                }
+                if (point)
+                    scale--;
+            }
+            else if (c == '.' && ! point)
+                point = true;
+            else
+                break;
+        }
+        if (! any)
+            return slowDouble(b, s, e);
+
+        if (i < e && (b.get(i) == 'e' || b.get(i) == 'E')) {
+            int j = i + 1;
+            boolean negExp = false;
+            if (j < e && (b.get(j) == '-' || b.get(j) == '+')) {
+                negExp = b.get(j) == '-';
+                j++;
+            }
+            if (j == e)
+                return slowDouble(b, s, e);
+            int x = 0;
+            for (; j < e; j++) {
+                int d = b.get(j) - '0';
+                if (d < 0 || 9 < d || x > 1000)
+                    return slowDouble(b, s, e);
+                x = 10 * x + d;
+            }
+            scale += negExp ? -x : x;
+            i = j;
+        }
+        if (i != e || m > (1L << 53) || scale < -22 || 22 < scale)
+            return slowDouble(b, s, e);
+
+        double d = scale >= 0 ? m * POW10[scale] : m / POW10[-scale];
+        return negative ? -d : d;
+    }
+
+    static double slowDouble(ByteBuffer b, int s, int e) {
+        byte[] bytes = new byte[e - s];
+        b.get(s, bytes);
+        try {
+            return Double.parseDouble(new String(bytes, StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException ex) {
+            throw error(b, s, e, "a double");
+        }
+    }
+
+    /** Loads the remaining rows of CSV into columns of TYPES. */
+    public static ColumnarCSV load(MappedCSV csv, Type... types) {
+        ColumnarCSV table = new ColumnarCSV(types);
+        int n = types.length;
+        while (csv.nextRow()) {
+            if (csv.cellCount() == 1 && csv.start(0) == csv.end(0) && ! csv.isQuoted(0))
+                continue;
+            if (csv.cellCount() != n)
+                throw new IllegalArgumentException("row " + table.rows_ + ": " + csv.cellCount() + " cells for " + n + " columns");
+
+            int row = table.rows_;
+            if (row == table.capacity_)
+                table.resize(2 * row);
+            ByteBuffer b = csv.buffer();
+            for (int c = 0; c < n; c++) {
+                int s = csv.bufferStart(c);
+                int e = csv.bufferEnd(c);
+                try {
+                    switch (types[c]) {
+                        case INT:
+                            ((int[])table.columns_[c])[row] = parseInt(b, s, e);
+                            break;
+                        case LONG:
+                            ((long[])table.columns_[c])[row] = parseLong(b, s, e);
+                            break;
+                        case DOUBLE:
+                            ((double[])table.columns_[c])[row] = parseDouble(b, s, e);
+                            break;
+                        case STRING:
+                            ((String[])table.columns_[c])[row] = csv.cellString(c);
+                            break;
+                    }
+                } catch (NumberFormatException ex) {
+                    throw new NumberFormatException("row " + row + ", column " + c + ": " + ex.getMessage());
+                }
+            }
+            table.rows_++;
+        }
+        table.resize(table.rows_);
+        return table;
+    }
+
+    public static ColumnarCSV load(Path path, Type... types) throws IOException {
+        try (MappedCSV csv = MappedCSV.open(path)) {
+            return load(csv, types);
+        }
+    }
+
+    public static ColumnarCSV load(ByteBuffer buf, Type... types) {
+        return load(new MappedCSV(buf), types);
+    }
+
+    public static void main(String[] args) {
+        String text = "1,Tokyo,13960000,2194.07\r\n"
+                    + "2,\"New York, NY\",8336817,783.8\r\n"
+                    + "-3, London ,8982000,1.5723e3\r\n"
+                    + "2147483647,\"say \"\"hi\"\"\",9223372036854775807,-0.000001\r\n";
+        ColumnarCSV table = load(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)),
+                                 Type.INT, Type.STRING, Type.LONG, Type.DOUBLE);
+        for (int row = 0; row < table.rowCount(); row++) {
+            System.out.printf("%d [%s] %d %s%n", table.getInt(row, 0), table.getString(row, 1),
+                              table.getLong(row, 2), table.getDouble(row, 3));
+        }
+
+        try {
+            load(ByteBuffer.wrap("2147483648\n".getBytes()), Type.INT);
+        } catch (NumberFormatException e) {
+            System.out.println(e.getMessage());
+        }
+
+        // 19 digit mantissas above Long.MAX_VALUE go to Double.parseDouble
+        boolean ok = true;
+        for (String x: new String[] { "9999999999999999999", "9300000000000000000", "-9223372036854775808",
+                                      "999999999999999999", "1234567890123456789.5e-3" }) {
+            byte[] bytes = x.getBytes(StandardCharsets.US_ASCII);
+            ok &= parseDouble(ByteBuffer.wrap(bytes), 0, bytes.length) == Double.parseDouble(x);
+        }
+        System.out.println("long mantissas: " + ok);
+    }
+}
@@ -0,0 +1,409 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * CSV scanner over UTF-8 bytes in a ByteBuffer, typically a mapped file.
+ *
+ * nextRow() only finds the boundaries of the cells of the next row; they
+ * are read by start/end, viewed by cell() without copying, and decoded
+ * into a String by cellString() when asked.  The grammar is that of
+ * CSV.read: blanks before a cell are skipped, a quote inside an unquoted
+ * cell is literal, and "" in a quoted cell stands for a quote.  The
+ * structural bytes are ASCII, so they never occur inside a multibyte
+ * character.
+ *
+ * A file is mapped in windows of at most 1GB.  When a row runs over the
+ * end of a window, the next window is mapped from the start of that row,
+ * so a row must fit in a window.  Offsets from start/end are offsets in
+ * the file.
+ *
+ * The bytes of a cell are skipped 8 at a time: a long of 8 bytes is
+ * tested for the bytes that end the cell all at once (SWAR), and the
+ * first of them is found by counting trailing zeros.
+ */
+public class MappedCSV implements Closeable {
+    static final int WINDOW = 1 << 30;
+
+    static final long ONES = 0x0101010101010101L;
+    static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+    static final long COMMAS = ONES * ',';
+    static final long QUOTES = ONES * '\"';
+    static final long CRS = ONES * '\r';
+    static final long LFS = ONES * '\n';
+
+    static final byte QUOTED = 1;
+    static final byte ESCAPED = 2;      // quoted and contains ""
+
+    private final FileChannel channel_;     // null for a given buffer
+    private final long size_;
+    private final int window_;
+    private final boolean last_;
+
+    private ByteBuffer buf_;
+    private long base_ = 0;     // offset of buf_ in the file
+    private int pos_ = 0;
+    private boolean done_ = false;
+
+    private int count_ = 0;
+    private int[] starts_ = new int[16];
+    private int[] ends_ = new int[16];
+    private byte[] flags_ = new byte[16];
+    private byte[] scratch_ = new byte[64];
+
+    private MappedCSV(FileChannel channel, ByteBuffer buf, long size, int window, boolean last) {
+        channel_ = channel;
+        buf_ = buf.order(ByteOrder.LITTLE_ENDIAN);
+        size_ = size;
+        window_ = window;
+        last_ = last;
+    }
+
+    /**
+     * Scans the bytes between the position and the limit of BUF.  Unless
+     * LAST, BUF is a part of a larger input that goes on after it, so a line
+     * end at the end of BUF does not begin one more (empty) row.
+     */
+    public MappedCSV(ByteBuffer buf, boolean last) {
+        this(null, buf.slice(), buf.remaining(), buf.remaining(), last);
+    }
+
+    public MappedCSV(ByteBuffer buf) {
+        this(buf, true);
+    }
+
+    public static MappedCSV open(Path path, int window) throws IOException {
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.READ);
+        long size = ch.size();
+        ByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, window));
+        return new MappedCSV(ch, buf, size, window, true);
+    }
+
+    public static MappedCSV open(Path path) throws IOException {
+        return open(path, WINDOW);
+    }
+
+    /** The offset where the next row begins. */
+    public long position() {
+        return base_ + pos_;
+    }
+
+    private void add(int start, int end, byte flag) {
+        if (count_ == starts_.length) {
+            starts_ = Arrays.copyOf(starts_, 2 * count_);
+            ends_ = Arrays.copyOf(ends_, 2 * count_);
+            flags_ = Arrays.copyOf(flags_, 2 * count_);
+        }
+        starts_[count_] = start;
+        ends_[count_] = end;
+        flags_[count_] = flag;
+        count_++;
+    }
+
+    // the high bit of every byte of X that is 0
+    static long zeroBytes(long x) {
+        return ~(((x & LOW7) + LOW7) | x | LOW7);
+    }
+
+    // B must be little endian, so that the first byte is the lowest
+    static int nextDelimiter(ByteBuffer b, int p, int lim) {
+        for (; p + Long.BYTES <= lim; p += Long.BYTES) {
+            long x = b.getLong(p);
+            long m = zeroBytes(x ^ COMMAS) | zeroBytes(x ^ CRS) | zeroBytes(x ^ LFS);
+            if (m != 0)
+                return p + (Long.numberOfTrailingZeros(m) >>> 3);
+        }
+        for (; p < lim; p++) {
+            int c = b.get(p);
+            if (c == ',' || c == '\r' || c == '\n')
+                break;
+        }
+        return p;
+    }
+
+    static int nextQuote(ByteBuffer b, int p, int lim) {
+        for (; p + Long.BYTES <= lim; p += Long.BYTES) {
+            long m = zeroBytes(b.getLong(p) ^ QUOTES);
+            if (m != 0)
+                return p + (Long.numberOfTrailingZeros(m) >>> 3);
+        }
+        while (p < lim && b.get(p) != '\"')
+            p++;
+        return p;
+    }
+
+    // the first of , " \r \n
+    static int nextSpecial(ByteBuffer b, int p, int lim) {
+        for (; p + Long.BYTES <= lim; p += Long.BYTES) {
+            long x = b.getLong(p);
+            long m = zeroBytes(x ^ COMMAS) | zeroBytes(x ^ QUOTES) | zeroBytes(x ^ CRS) | zeroBytes(x ^ LFS);
+            if (m != 0)
+                return p + (Long.numberOfTrailingZeros(m) >>> 3);
+        }
+        for (; p < lim; p++) {
+            int c = b.get(p);
+            if (c == ',' || c == '\"' || c == '\r' || c == '\n')
+                break;
+        }
+        return p;
+    }
+
+    // the position after the line end at P, or -1 if the window ends
+    // before it is known whether '\r' is followed by '\n'
+    private static int endOfLine(ByteBuffer b, int p, int lim, boolean eof) {
+        if (b.get(p) == '\n')
+            return p + 1;
+        if (p + 1 < lim)
+            return b.get(p + 1) == '\n' ? p + 2 : p + 1;
+        return eof ? p + 1 : -1;
+    }
+
+    // 1 if a row is found, 0 at the end, or -1 if the row runs over the window
+    private int scanRow() {
+        ByteBuffer b = buf_;
+        int lim = b.limit();
+        boolean eof = base_ + lim == size_;
+        int p = pos_;
+        count_ = 0;
+
+        for (;;) {
+            // between cells
+            while (p < lim && (b.get(p) == ' ' || b.get(p) == '\t'))
+                p++;
+            if (p == lim) {
+                if (! eof)
+                    return -1;
+                done_ = true;
+                if (! last_ && count_ == 0)
+                    return 0;
+                add(p, p, (byte)0);
+                pos_ = p;
+                return 1;
+            }
+
+            int c = b.get(p);
+            if (c == ',') {
+                add(p, p, (byte)0);
+                p++;
+                continue;
+            }
+            if (c == '\r' || c == '\n') {
+                int q = endOfLine(b, p, lim, eof);
+                if (q < 0)
+                    return -1;
+                add(p, p, (byte)0);
+                pos_ = q;
+                return 1;
+            }
+
+            if (c == '\"') {
+                int start = ++p;
+                byte flag = QUOTED;
+                for (;;) {
+                    p = nextQuote(b, p, lim);
+                    if (p == lim) {
+                        // not closed until the end
+                        if (! eof)
+                            return -1;
+                        add(start, p, flag);
+                        done_ = true;
+                        pos_ = p;
+                        return 1;
+                    }
+                    if (p + 1 == lim && ! eof)
+                        return -1;
+                    if (p + 1 < lim && b.get(p + 1) == '\"') {
+                        flag |= ESCAPED;
+                        p += 2;
+                        continue;
+                    }
+                    break;
+                }
+                add(start, p++, flag);
+
+                if (p == lim) {
+                    done_ = true;
+                    pos_ = p;
+                    return 1;
+                }
+                c = b.get(p);
+                if (c == ',') {
+                    p++;
+                    continue;
+                }
+                if (c == '\r' || c == '\n') {
+                    int q = endOfLine(b, p, lim, eof);
+                    if (q < 0)
+                        return -1;
+                    pos_ = q;
+                    return 1;
+                }
+                throw new IllegalArgumentException("Cell not enclosed by quotation marks");
+            }
+
+            int start = p;
+            p = nextDelimiter(b, p, lim);
+            if (p == lim) {
+                if (! eof)
+                    return -1;
+                add(start, p, (byte)0);
+                done_ = true;
+                pos_ = p;
+                return 1;
+            }
+            add(start, p, (byte)0);
+            if (b.get(p) == ',') {
+                p++;
+                continue;
+            }
+            int q = endOfLine(b, p, lim, eof);
+            if (q < 0)
+                return -1;
+            pos_ = q;
+            return 1;
+        }
+    }
+
+    private void remap() {
+        if (pos_ == 0)
+            throw new IllegalStateException("a row is longer than the window at " + base_);
+        long from = base_ + pos_;
+        try {
+            buf_ = channel_.map(FileChannel.MapMode.READ_ONLY, from, Math.min(size_ - from, window_))
+                           .order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        base_ = from;
+        pos_ = 0;
+    }
+
+    /** Finds the cells of the next row; returns false at the end. */
+    public boolean nextRow() {
+        if (done_) {
+            count_ = 0;
+            return false;
+        }
+        for (;;) {
+            int r = scanRow();
+            if (r >= 0)
+                return r > 0;
+            remap();
+        }
+    }
+
+    public int cellCount() {
+        return count_;
+    }
+
+    public long start(int i) {
+        Objects.checkIndex(i, count_);
+        return base_ + starts_[i];
+    }
+
+    public long end(int i) {
+        Objects.checkIndex(i, count_);
+        return base_ + ends_[i];
+    }
+
+    // the current window, and cell I in it, for the parsers of ColumnarCSV
+    ByteBuffer buffer() {
+        return buf_;
+    }
+
+    int bufferStart(int i) {
+        Objects.checkIndex(i, count_);
+        return starts_[i];
+    }
+
+    int bufferEnd(int i) {
+        Objects.checkIndex(i, count_);
+        return ends_[i];
+    }
+
+    public boolean isQuoted(int i) {
+        Objects.checkIndex(i, count_);
+        return (flags_[i] & QUOTED) != 0;
+    }
+
+    /** Whether cell I contains "" that cellString turns into ". */
+    public boolean isEscaped(int i) {
+        Objects.checkIndex(i, count_);
+        return (flags_[i] & ESCAPED) != 0;
+    }
+
+    /** The raw bytes of cell I, without the enclosing quotes; shares the memory. */
+    public ByteBuffer cell(int i) {
+        Objects.checkIndex(i, count_);
+        return buf_.slice(starts_[i], ends_[i] - starts_[i]);
+    }
+
+    public String cellString(int i) {
+        Objects.checkIndex(i, count_);
+        int s = starts_[i];
+        int len = ends_[i] - s;
+        if (len == 0)
+            return "";
+
+        if (scratch_.length < len)
+            scratch_ = new byte[Math.max(len, 2 * scratch_.length)];
+        if ((flags_[i] & ESCAPED) == 0) {
+            if (buf_.hasArray())
+                return new String(buf_.array(), buf_.arrayOffset() + s, len, StandardCharsets.UTF_8);
+            buf_.get(s, scratch_, 0, len);
+            return new String(scratch_, 0, len, StandardCharsets.UTF_8);
+        }
+
+        int n = 0;
+        for (int j = s; j < s + len; j++) {
+            byte x = buf_.get(j);
+            scratch_[n++] = x;
+            if (x == '\"')
+                j++;
+        }
+        return new String(scratch_, 0, n, StandardCharsets.UTF_8);
+    }
+
+    /** The cells of the current row, decoded. */
+    public List<String> row() {
+        List<String> result = new ArrayList<String>(count_);
+        for (int i = 0; i < count_; i++) {
+            result.add(cellString(i));
+        }
+        return result;
+    }
+
+    public void close() throws IOException {
+        if (channel_ != null)
+            channel_.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        String text = "123, 456, 789\r\n\"text contains \"\" (double quote)\"\n\"new\nline\",1:23'45\", \u65E5\u672C\n,,\r\n";
+        Path path = Files.createTempFile("mapped", ".csv");
+        Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+
+        // a window of 48 bytes makes it remap several times
+        try (MappedCSV csv = MappedCSV.open(path, 48)) {
+            List<List<String>> table = new ArrayList<List<String>>();
+            while (csv.nextRow()) {
+                table.add(csv.row());
+            }
+            System.out.println(table);
+            System.out.println(table.equals(CSV.read(new StringReader(text))));
+        }
+
+        MappedCSV csv = new MappedCSV(ByteBuffer.wrap("a,\"b\"\nc\n".getBytes()), false);
+        while (csv.nextRow()) {
+            for (int i = 0; i < csv.cellCount(); i++) {
+                System.out.print("[" + csv.start(i) + "," + csv.end(i) + (csv.isQuoted(i) ? " quoted" : "") + "] ");
+            }
+            System.out.println();
+        }
+        Files.delete(path);
+    }
+}
@@ -0,0 +1,260 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Parallel CSV.read of a file.
+ *
+ * The file is cut into chunks, but a chunk may begin inside a quoted cell,
+ * so where its first row begins depends on the bytes before it.  The
+ * first pass scans every chunk in parallel for every state it may begin
+ * in, recording the state at its end and its first row boundary.  Then
+ * the true state at each chunk start follows from the one before it, in
+ * order from the first chunk, which picks a row boundary for each chunk.
+ * The second pass parses the rows between those boundaries with MappedCSV,
+ * in parallel again, and the rows are concatenated in order.
+ */
+public class ParallelCSV {
+    static final int MIN_CHUNK = 1 << 16;
+
+    // states of the scan for row boundaries
+    static final int SEP = 0;           // before a cell
+    static final int CELL = 1;
+    static final int QUOTED = 2;
+    static final int QUOTED_QUOTE = 3;
+    static final int AFTER_CR = 4;
+    static final int STATES = 5;
+
+    // byte classes
+    static final int OTHER = 0;
+    static final int COMMA = 1;
+    static final int QUOTE = 2;
+    static final int LF = 3;
+    static final int CR = 4;
+    static final int BLANK = 5;
+    static final int CLASSES = 6;
+
+    // a row begins after this byte, or at this byte
+    static final int BOUNDARY_AFTER = 8;
+    static final int BOUNDARY_AT = 16;
+
+    static final byte[] CLASS = new byte[256];
+    static final int[] NEXT = new int[STATES * CLASSES];
+
+    static {
+        CLASS[','] = COMMA;
+        CLASS['\"'] = QUOTE;
+        CLASS['\n'] = LF;
+        CLASS['\r'] = CR;
+        CLASS[' '] = BLANK;
+        CLASS['\t'] = BLANK;
+
+        int[][] next = {
+            //  OTHER   COMMA  QUOTE         LF                   CR        BLANK
+            {   CELL,   SEP,   QUOTED,       SEP | BOUNDARY_AFTER, AFTER_CR, SEP    },  // SEP
+            {   CELL,   SEP,   CELL,         SEP | BOUNDARY_AFTER, AFTER_CR, CELL   },  // CELL
+            {   QUOTED, QUOTED, QUOTED_QUOTE, QUOTED,              QUOTED,   QUOTED },  // QUOTED
+            // anything else after a closing quote is an error for the parser
+            {   SEP,    SEP,   QUOTED,       SEP | BOUNDARY_AFTER, AFTER_CR, SEP    },  // QUOTED_QUOTE
+            {   CELL | BOUNDARY_AT, SEP | BOUNDARY_AT, QUOTED | BOUNDARY_AT,
+                SEP | BOUNDARY_AFTER, AFTER_CR | BOUNDARY_AT, SEP | BOUNDARY_AT },      // AFTER_CR
+        };
+        for (int s = 0; s < STATES; s++) {
+            System.arraycopy(next[s], 0, NEXT, s * CLASSES, CLASSES);
+        }
+    }
+
+    // the result of scanning a chunk from every state
+    static class Scan {
+        final int[] end = new int[STATES];
+        final long[] first = new long[STATES];      // -1 if there is no boundary
+    }
+
+    // Runs the scan from all the states at once.  Runs that reach the same
+    // state go on as one track, so usually two tracks are left: one inside
+    // quotes and one outside.  While every track is in CELL or QUOTED, only
+    // , " \r \n can change a state, so the bytes up to the next of them are
+    // skipped.
+    static Scan scan(ByteBuffer b, long base) {
+        b.order(ByteOrder.LITTLE_ENDIAN);
+        Scan result = new Scan();
+        Arrays.fill(result.first, -1);
+        int[] state = { 0, 1, 2, 3, 4 };    // of each track
+        int[] track = { 0, 1, 2, 3, 4 };    // of each start state
+        int tracks = STATES;
+        int unset = STATES;
+
+        int lim = b.limit();
+        int steps = 0;
+        for (int p = 0; p < lim; p++) {
+            int cls = CLASS[b.get(p) & 0xFF];
+            boolean inCells = true;
+            for (int t = 0; t < tracks; t++) {
+                int x = NEXT[state[t] * CLASSES + cls];
+                state[t] = x & 7;
+                inCells &= state[t] == CELL || state[t] == QUOTED;
+                if (x > 7 && unset > 0) {
+                    long at = base + p + ((x & BOUNDARY_AFTER) != 0 ? 1 : 0);
+                    for (int s = 0; s < STATES; s++) {
+                        if (track[s] == t && result.first[s] < 0) {
+                            result.first[s] = at;
+                            unset--;
+                        }
+                    }
+                }
+            }
+
+            if (inCells)
+                p = MappedCSV.nextSpecial(b, p + 1, lim) - 1;
+
+            if ((++steps & 63) == 0 && tracks > 1) {
+                for (int t = tracks - 1; t > 0; t--) {
+                    for (int u = 0; u < t; u++) {
+                        if (state[u] != state[t])
+                            continue;
+                        // merge t into u, and move the last track to t
+                        tracks--;
+                        state[t] = state[tracks];
+                        for (int s = 0; s < STATES; s++) {
+                            if (track[s] == t)
+                                track[s] = u;
+                            else if (track[s] == tracks)
+                                track[s] = t;
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        for (int s = 0; s < STATES; s++) {
+            result.end[s] = state[track[s]];
+        }
+        return result;
+    }
+
+    static <T> List<T> invokeAll(ForkJoinPool pool, List<Callable<T>> tasks) throws IOException {
+        List<T> result = new ArrayList<T>(tasks.size());
+        try {
+            for (Future<T> f: pool.invokeAll(tasks)) {
+                result.add(f.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException)cause;
+            if (cause instanceof UncheckedIOException)
+                throw ((UncheckedIOException)cause).getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            throw new IllegalStateException(cause);
+        }
+        return result;
+    }
+
+    /**
+     * The offsets where the rows of CHUNKS parts of the file begin.  A part
+     * without a row boundary is joined to the one before it.  The last
+     * element is the size of the file.
+     */
+    static long[] rowStarts(FileChannel ch, int chunks, ForkJoinPool pool) throws IOException {
+        long size = ch.size();
+        long[] bounds = new long[chunks + 1];
+        for (int k = 0; k <= chunks; k++) {
+            bounds[k] = size * k / chunks;
+        }
+
+        List<Callable<Scan>> tasks = new ArrayList<Callable<Scan>>();
+        for (int k = 1; k < chunks; k++) {
+            long from = bounds[k];
+            long len = bounds[k + 1] - from;
+            tasks.add(() -> scan(ch.map(FileChannel.MapMode.READ_ONLY, from, len), from));
+        }
+        List<Scan> scans = invokeAll(pool, tasks);
+
+        // the state at the start of chunk 1 needs the scan of chunk 0 from SEP
+        Scan head = scan(ch.map(FileChannel.MapMode.READ_ONLY, 0, bounds[1]), 0);
+        int state = head.end[SEP];
+
+        long[] starts = new long[chunks + 1];
+        int n = 0;
+        starts[n++] = 0;
+        for (Scan s: scans) {
+            if (s.first[state] >= 0)
+                starts[n++] = s.first[state];
+            state = s.end[state];
+        }
+        starts[n++] = size;
+        return Arrays.copyOf(starts, n);
+    }
+
+    static List<List<String>> parse(FileChannel ch, long from, long to, boolean last) throws IOException {
+        if (to - from > Integer.MAX_VALUE)
+            throw new IllegalStateException("no row boundary in 2GB at " + from);
+        MappedCSV csv = new MappedCSV(ch.map(FileChannel.MapMode.READ_ONLY, from, to - from), last);
+        List<List<String>> rows = new ArrayList<List<String>>();
+        while (csv.nextRow()) {
+            rows.add(csv.row());
+        }
+        return rows;
+    }
+
+    /** Reads PATH, as CSV.read does, in about CHUNKS parallel parts. */
+    public static List<List<String>> read(Path path, ForkJoinPool pool, int chunks) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            chunks = (int)Math.max(Math.min(chunks, size / MIN_CHUNK), (size >> 30) + 1);
+            long[] starts = chunks > 1 ? rowStarts(ch, chunks, pool) : new long[] { 0, size };
+
+            List<Callable<List<List<String>>>> tasks = new ArrayList<Callable<List<List<String>>>>();
+            for (int i = 0; i + 1 < starts.length; i++) {
+                long from = starts[i];
+                long to = starts[i + 1];
+                boolean last = i + 2 == starts.length;
+                tasks.add(() -> parse(ch, from, to, last));
+            }
+
+            List<List<String>> table = new ArrayList<List<String>>();
+            for (List<List<String>> rows: invokeAll(pool, tasks)) {
+                table.addAll(rows);
+            }
+            return table;
+        }
+    }
+
+    public static List<List<String>> read(Path path) throws IOException {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        return read(path, pool, 4 * pool.getParallelism());
+    }
+
+    public static void main(String[] args) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        Random random = new Random(1);
+        for (int i = 0; i < 200000; i++) {
+            switch (random.nextInt(4)) {
+                case 0: sb.append(i).append(",plain,").append(i * 7).append("\r\n"); break;
+                case 1: sb.append("\"multi\nline\r\n, ").append(i).append("\",x\n"); break;
+                case 2: sb.append("\"say \"\"").append(i).append("\"\"\", \"\"\r"); break;
+                default: sb.append(",,\n"); break;
+            }
+        }
+        String text = sb.toString();
+        Path path = Files.createTempFile("parallel", ".csv");
+        Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+
+        List<List<String>> expected = CSV.read(new StringReader(text));
+        for (int chunks: new int[] { 1, 3, 16, 100 }) {
+            List<List<String>> table = read(path, ForkJoinPool.commonPool(), chunks);
+            System.out.printf("%3d chunks: %d rows, same as CSV.read: %b%n",
+                              chunks, table.size(), table.equals(expected));
+        }
+        Files.delete(path);
+    }
+}
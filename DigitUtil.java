@@ -1,39 +1,203 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
 public class DigitUtil {
     public static int atoi(CharSequence digits) {
-        int n = 0;
-        for (int i = 0; i < digits.length(); i++) {
-            n = 10 * n + digits.charAt(i) - '0';
+        return parseInt(digits, 10);
+    }
+
+    static final int NOT_DIGIT = 99;
+
+    // the value of every ASCII digit and letter; NOT_DIGIT for the others,
+    // so that one comparison with the radix checks a digit
+    static final byte[] DIGIT = new byte[256];
+
+    // the number of digits that can not overflow, for each radix
+    static final int[] SAFE_INT = new int[37];
+    static final int[] SAFE_LONG = new int[37];
+
+    static {
+        Arrays.fill(DIGIT, (byte)NOT_DIGIT);
+        for (int c = '0'; c <= '9'; c++)
+            DIGIT[c] = (byte)(c - '0');
+        for (int c = 'A'; c <= 'Z'; c++)
+            DIGIT[c] = (byte)(c - 'A' + 10);
+        for (int c = 'a'; c <= 'z'; c++)
+            DIGIT[c] = (byte)(c - 'a' + 10);
+
+        // D digits are safe if radix^D <= 2^31 (or 2^63, compared unsigned)
+        for (int radix = 2; radix <= 36; radix++) {
+            int d = 0;
+            for (long p = 1; p <= (1L << 31) / radix; p *= radix)
+                d++;
+            SAFE_INT[radix] = d;
+            d = 0;
+            for (long p = 1; Long.compareUnsigned(p, Long.divideUnsigned(1L << 63, radix)) <= 0; p *= radix)
+                d++;
+            SAFE_LONG[radix] = d;
         }
-        return n;
+    }
+
+    static int digit(int c) {
+        return c < DIGIT.length ? DIGIT[c] : NOT_DIGIT;
     }
 
     static int digitValue(int c) {
-        if ('0' <= c && c <= '9')
-            return c - '0';
-        else if ('A' <= c && c <= 'Z')
-            return c - 'A' + 10;
-        else if ('a' <= c && c <= 'z')
-            return c - 'a' + 10;
-        else
+        int d = digit(c);
+        return d == NOT_DIGIT ? -1 : d;
+    }
+
+    static final VarHandle LONG_LE =
+        MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    static final long ONES = 0x0101010101010101L;
+    static final long HIGH = 0x8080808080808080L;
+    static final long LOW_NIBBLES = 0x0F0F0F0F0F0F0F0FL;
+    static final long HIGH_NIBBLES = 0xF0F0F0F0F0F0F0F0L;
+
+    // the high bit of every byte of X in LO..HI; every byte of X is below 0x80
+    static long inRange(long x, int lo, int hi) {
+        return (x + ONES * (0x80 - lo)) & ~(x + ONES * (0x7F - hi)) & HIGH;
+    }
+
+    // The value of 8 decimal digits in W, the first digit in the lowest byte,
+    // or -1 if a byte is not a digit.  Three multiplications combine the
+    // digits into pairs, the pairs into fours, and the fours into the value.
+    static long eightDigits(long w) {
+        if ((w & HIGH_NIBBLES) != ONES * 0x30 || ((w + ONES * 6) & HIGH_NIBBLES) != ONES * 0x30)
             return -1;
+        long v = w & LOW_NIBBLES;
+        v = (v * (10 << 8 | 1)) >>> 8;
+        v = ((v & 0x00FF00FF00FF00FFL) * (100 << 16 | 1)) >>> 16;
+        return ((v & 0x0000FFFF0000FFFFL) * (10000L << 32 | 1)) >>> 32;
     }
 
-    public static int parseInt(CharSequence digits, int radix) {
+    // The value of 8 hexadecimal digits in W, or -1.  OR-ing 0x20 turns
+    // capital letters into small ones.
+    static long eightHexDigits(long w) {
+        if ((w & HIGH) != 0)
+            return -1;
+        long digits = inRange(w, '0', '9');
+        long letters = inRange(w | ONES * 0x20, 'a', 'f');
+        if ((digits | letters) != HIGH)
+            return -1;
+        long v = (w & LOW_NIBBLES) + (letters >>> 7) * 9;
+        v = ((v << 4) | (v >>> 8)) & 0x00FF00FF00FF00FFL;
+        v = ((v << 8) | (v >>> 16)) & 0x0000FFFF0000FFFFL;
+        return ((v << 16) | (v >>> 32)) & 0xFFFFFFFFL;
+    }
+
+    // 8 characters from I packed as bytes, or -1 if one is not ASCII
+    static long pack8(CharSequence digits, int i) {
+        long w = 0;
+        int all = 0;
+        for (int k = 0; k < 8; k++) {
+            int c = digits.charAt(i + k);
+            all |= c;
+            w |= (long)c << (8 * k);
+        }
+        return all < 0x80 ? w : -1;
+    }
+
+    static int checkedRadix(int radix) {
         if (radix <= 1 || 36 < radix) {
             throw new IllegalArgumentException("radix: " + radix);
         }
-    
-        int n = 0;
-        for (int i = 0; i < digits.length(); i++) {
-            int d = digitValue(digits.charAt(i));
-            if (0 <= d && d < radix) {
-                n = radix * n + d;
+        return radix;
+    }
+
+    static NumberFormatException notDigit(int c, int radix) {
+        return new NumberFormatException("not in the range 0.." + radix + ": " + digitValue(c));
+    }
+
+    static NumberFormatException outOfRange(Object digits, int off, int end) {
+        if (digits instanceof byte[])
+            digits = new String((byte[])digits, off, end - off, StandardCharsets.ISO_8859_1);
+        return new NumberFormatException("out of range: " + digits);
+    }
+
+    // the char at I of DIGITS, a CharSequence or ASCII bytes
+    static int charAt(Object digits, int i) {
+        if (digits instanceof byte[])
+            return ((byte[])digits)[i] & 0xFF;
+        else
+            return ((CharSequence)digits).charAt(i);
+    }
+
+    // Digits with an optional sign from OFF to END of DIGITS, a CharSequence
+    // or a byte[], accumulated as a negative number as Long.parseLong does,
+    // since MIN has no positive counterpart.  The first SAFE digits can not
+    // overflow, so only the digits after them are checked against LIMIT.
+    // No digits, as in "" or a lone sign, read as 0 as they always did.
+    //
+    // This is inlined into the public versions, where the type of DIGITS is
+    // known and the tests on it fold away.
+    static long parse(Object digits, int off, int end, int radix, long min, int safe) {
+        int i = off;
+        boolean negative = false;
+        if (i < end && (charAt(digits, i) == '-' || charAt(digits, i) == '+')) {
+            negative = charAt(digits, i) == '-';
+            i++;
+        }
+
+        long limit = negative ? min : min + 1;
+        long multmin = limit / radix;
+        int safeEnd = Math.min(end, i + safe);
+        long n = 0;
+        // 8 digits at a time while they are valid; the loop below reports
+        // an error.  For decimal digits, packing the chars of a CharSequence
+        // costs as much as it saves, so only bytes are read 8 at a time.
+        if (digits instanceof byte[] && radix == 10) {
+            for (; i + 8 <= safeEnd; i += 8) {
+                long v = eightDigits((long)LONG_LE.get((byte[])digits, i));
+                if (v < 0)
+                    break;
+                n = 100000000 * n - v;
             }
-            else {
-                throw new IllegalArgumentException("not in the range 0.." + radix + ": " + d);
+        }
+        else if (radix == 16) {
+            for (; i + 8 <= safeEnd; i += 8) {
+                long v = eightHexDigits(digits instanceof byte[] ? (long)LONG_LE.get((byte[])digits, i)
+                                                                 : pack8((CharSequence)digits, i));
+                if (v < 0)
+                    break;
+                n = (n << 32) - v;
             }
         }
-        return n;
+        for (; i < safeEnd; i++) {
+            int c = charAt(digits, i);
+            int d = digit(c);
+            if (d >= radix)
+                throw notDigit(c, radix);
+            n = radix * n - d;
+        }
+        for (; i < end; i++) {
+            int c = charAt(digits, i);
+            int d = digit(c);
+            if (d >= radix)
+                throw notDigit(c, radix);
+            if (n < multmin)
+                throw outOfRange(digits, off, end);
+            n *= radix;
+            if (n < limit + d)
+                throw outOfRange(digits, off, end);
+            n -= d;
+        }
+        return negative ? n : -n;
+    }
+
+    /**
+     * Parses DIGITS in RADIX with an optional sign.  Empty digits read as 0.
+     *
+     * @throws NumberFormatException if a char is not a digit or the value
+     *         does not fit in the type
+     */
+    public static int parseInt(CharSequence digits, int radix) {
+        return (int)parse(digits, 0, digits.length(), radix, Integer.MIN_VALUE, SAFE_INT[checkedRadix(radix)]);
     }
 
     public static int parseInt(CharSequence digits) {
@@ -41,27 +205,34 @@ public class DigitUtil {
     }
 
     public static long parseLong(CharSequence digits, int radix) {
-        if (radix <= 1 || 36 < radix) {
-            throw new IllegalArgumentException("radix: " + radix);
-        }
-    
-        long n = 0;
-        for (int i = 0; i < digits.length(); i++) {
-            int d = digitValue(digits.charAt(i));
-            if (0 <= d && d < radix) {
-                n = radix * n + d;
-            }
-            else {
-                throw new IllegalArgumentException("not in the range 0.." + radix + ": " + d);
-            }
-        }
-        return n;
+        return parse(digits, 0, digits.length(), radix, Long.MIN_VALUE, SAFE_LONG[checkedRadix(radix)]);
     }
 
     public static long parseLong(CharSequence digits) {
         return parseLong(digits, 10);
     }
 
+    /** parseLong of LEN ASCII characters from OFF, 8 digits at a time in radixes 10 and 16. */
+    public static long parseLong(byte[] digits, int off, int len, int radix) {
+        int safe = SAFE_LONG[checkedRadix(radix)];
+        Objects.checkFromIndexSize(off, len, digits.length);
+        return parse(digits, off, off + len, radix, Long.MIN_VALUE, safe);
+    }
+
+    public static long parseLong(byte[] digits, int off, int len) {
+        return parseLong(digits, off, len, 10);
+    }
+
+    public static int parseInt(byte[] digits, int off, int len, int radix) {
+        int safe = SAFE_INT[checkedRadix(radix)];
+        Objects.checkFromIndexSize(off, len, digits.length);
+        return (int)parse(digits, off, off + len, radix, Integer.MIN_VALUE, safe);
+    }
+
+    public static int parseInt(byte[] digits, int off, int len) {
+        return parseInt(digits, off, len, 10);
+    }
+
     static char digitChar(int n) {
         return "0123456789abcdefghijklmnopqrstuvwxyz".charAt(n);
     }
@@ -70,28 +241,167 @@ public class DigitUtil {
         return "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".charAt(n);
     }
 
-    public static String stringOf(int n, int base) {
-        if (base > 36)
-            throw new IllegalArgumentException("to large radix: " + base);
+    static final char[] DIGITS = "0123456789abcdefghijklmnopqrstuvwxyz".toCharArray();
 
-        if (n == 0)
-            return "0";
+    // "00" "01" ... "99"
+    static final char[] TWO_DIGITS = new char[200];
 
-        StringBuilder sb = new StringBuilder(10);
-        boolean negative = (n < 0);
-        if (negative) {
-            // don't negate N as n = - n because (-1) * Integer.MIN_VALUE == Integer.MIN_VALUE
-            sb.append(digitChar(- (n % base)));
-            n /= -base;
+    static {
+        for (int i = 0; i < 100; i++) {
+            TWO_DIGITS[2 * i] = (char)('0' + i / 10);
+            TWO_DIGITS[2 * i + 1] = (char)('0' + i % 10);
         }
-        for (; n > 0; n /= base) {
-            sb.insert(0, digitChar(n % base));
+    }
+
+    // 10^0 .. 10^19, the last one unsigned
+    static final long[] POW10 = new long[20];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++)
+            POW10[i] = 10 * POW10[i - 1];
+    }
+
+    // The number of digits of -N, N <= 0.  N is kept negative, since
+    // Long.MIN_VALUE has no positive counterpart; -N is read unsigned.
+    static int digitCount(long n, int radix) {
+        long u = -n;
+        int bits = 64 - Long.numberOfLeadingZeros(u | 1);
+        if (radix == 10) {
+            // log10(2) ~ 1233 / 4096 estimates the count within one
+            int d = bits * 1233 >>> 12;
+            return Math.max(1, d + (Long.compareUnsigned(u, POW10[d]) >= 0 ? 1 : 0));
         }
+        if ((radix & (radix - 1)) == 0) {
+            int shift = Integer.numberOfTrailingZeros(radix);
+            return (bits + shift - 1) / shift;
+        }
+        int d = 1;
+        for (long p = -radix; n <= p; p *= radix) {
+            d++;
+            if (p < Long.MIN_VALUE / radix)
+                break;
+        }
+        return d;
+    }
 
+    /** The number of chars that format writes for N in RADIX. */
+    public static int formatLength(long n, int radix) {
+        checkedRadix(radix);
+        return (n < 0 ? 1 : 0) + digitCount(n < 0 ? n : -n, radix);
+    }
+
+    // stores C at P of BUF, a char[], byte[] or ByteBuffer
+    static void put(Object buf, int p, char c) {
+        if (buf instanceof char[])
+            ((char[])buf)[p] = c;
+        else if (buf instanceof byte[])
+            ((byte[])buf)[p] = (byte)c;
+        else
+            ((ByteBuffer)buf).put(p, (byte)c);
+    }
+
+    // The digits of N in RADIX, put into BUF from BASE + OFF.  OFF is
+    // checked against LIMIT, the size of BUF from BASE.  As parse is, this
+    // is inlined into the public versions, where the tests on the type of
+    // BUF in put fold away; so each radix has a method of its own, small
+    // enough to be inlined.
+    static int format(long n, int radix, Object buf, int base, int off, int limit) {
+        checkedRadix(radix);
+        boolean negative = n < 0;
+        long m = negative ? n : -n;
+        int len = (negative ? 1 : 0) + digitCount(m, radix);
+        Objects.checkFromIndexSize(off, len, limit);
+
+        int p = base + off + len;
+        if (radix == 10)
+            p = formatDecimal(m, buf, p);
+        else if ((radix & (radix - 1)) == 0)
+            p = formatPowerOfTwo(-m, radix, buf, p);
+        else
+            p = formatRadix(m, radix, buf, p);
         if (negative)
-            sb.insert(0, '-');
+            put(buf, --p, '-');
+        return len;
+    }
 
-        return sb.toString();
+    // The digits of -M, M <= 0, put into BUF before P, two at a time;
+    // returns the position of the first one.
+    static int formatDecimal(long m, Object buf, int p) {
+        for (; m < Integer.MIN_VALUE; m /= 100) {
+            int r = (int)(m / 100 * 100 - m);
+            put(buf, --p, TWO_DIGITS[2 * r + 1]);
+            put(buf, --p, TWO_DIGITS[2 * r]);
+        }
+        // the rest in int arithmetic
+        int k = (int)m;
+        for (; k <= -100; k /= 100) {
+            int r = k / 100 * 100 - k;
+            put(buf, --p, TWO_DIGITS[2 * r + 1]);
+            put(buf, --p, TWO_DIGITS[2 * r]);
+        }
+        put(buf, --p, TWO_DIGITS[2 * -k + 1]);
+        if (k <= -10)
+            put(buf, --p, TWO_DIGITS[2 * -k]);
+        return p;
+    }
+
+    // the digits of U, read unsigned, by shifting
+    static int formatPowerOfTwo(long u, int radix, Object buf, int p) {
+        int shift = Integer.numberOfTrailingZeros(radix);
+        do {
+            put(buf, --p, DIGITS[(int)u & (radix - 1)]);
+            u >>>= shift;
+        } while (u != 0);
+        return p;
+    }
+
+    static int formatRadix(long m, int radix, Object buf, int p) {
+        do {
+            put(buf, --p, DIGITS[(int)(m / radix * radix - m)]);
+            m /= radix;
+        } while (m != 0);
+        return p;
+    }
+
+    /**
+     * Writes the digits of N in RADIX into BUF from OFF, as stringOf does,
+     * and returns their number.  The length is counted first, and the digits
+     * are filled in from the right, two at a time in radix 10 and by
+     * shifting in a radix that is a power of two.
+     */
+    public static int format(long n, int radix, char[] buf, int off) {
+        return format(n, radix, buf, 0, off, buf.length);
+    }
+
+    /** format into ASCII bytes. */
+    public static int format(long n, int radix, byte[] buf, int off) {
+        return format(n, radix, buf, 0, off, buf.length);
+    }
+
+    /** format into ASCII bytes at absolute positions of BUF, which keeps its position. */
+    public static int format(long n, int radix, ByteBuffer buf, int off) {
+        // within the limit of BUF, not only of a backing array
+        if (buf.hasArray())
+            return format(n, radix, buf.array(), buf.arrayOffset(), off, buf.limit());
+        else
+            return format(n, radix, buf, 0, off, buf.limit());
+    }
+
+    public static int format(int n, int radix, char[] buf, int off) {
+        return format((long)n, radix, buf, off);
+    }
+
+    public static int format(int n, int radix, byte[] buf, int off) {
+        return format((long)n, radix, buf, off);
+    }
+
+    public static int format(int n, int radix, ByteBuffer buf, int off) {
+        return format((long)n, radix, buf, off);
+    }
+
+    public static String stringOf(int n, int base) {
+        return stringOf((long)n, base);
     }
 
     public static String stringOf(int n) {
@@ -102,24 +412,9 @@ public class DigitUtil {
         if (base > 36)
             throw new IllegalArgumentException("to large radix: " + base);
 
-        if (n == 0)
-            return "0";
-
-        StringBuilder sb = new StringBuilder(10);
-        boolean negative = (n < 0);
-        if (negative) {
-            // don't negate N as n = - n because (-1) * Long.MIN_VALUE == Long.MIN_VALUE
-            sb.append(digitChar(- (int)(n % base)));
-            n /= -base;
-        }
-        for (; n > 0; n /= base) {
-            sb.insert(0, digitChar((int)(n % base)));
-        }
-
-        if (negative)
-            sb.insert(0, '-');
-
-        return sb.toString();
+        byte[] buf = new byte[formatLength(n, base)];
+        format(n, base, buf, 0);
+        return new String(buf, StandardCharsets.ISO_8859_1);
     }
 
     public static String stringOf(long n) {
@@ -139,7 +434,7 @@ public class DigitUtil {
                 sum += weight * (c - '0');
                 --weight;
             }
-            else if (weight == 1 && (c == 'x' || c == 'x')) {
+            else if (weight == 1 && (c == 'x' || c == 'X')) {
                 sum += 10;
                 --weight;
             }
@@ -163,6 +458,7 @@ public class DigitUtil {
             int c = code.charAt(index++);
             if ('0' <= c && c <= '9') {
                 sum += (2 * (count % 2) + 1) * (c - '0');
+                ++count;
                 // Note: 2 * (count % 2) + 1 == ((count & 1) << 1) + 1 is the weight.
                 // 
                 // count                | 0 1 2 3 4 5 6 7 8 9 10 11 12
@@ -175,7 +471,7 @@ public class DigitUtil {
                 return false;
         }
         
-        return count == 12 && sum % 10 == 0;
+        return count == 13 && sum % 10 == 0;
     }
 
     public static char checkDigitISBN10(CharSequence code) {
@@ -236,6 +532,7 @@ public class DigitUtil {
             int c = code.charAt(index++);
             if ('0' <= c && c <= '9') {
                 sum += (2 * (count % 2) + 1) * (c - '0');
+                ++count;
                 // Note: 2 * (count % 2) + 1 == ((count & 1) << 1) + 1 is the weight.
                 // 
                 // count                | 0 1 2 3 4 5 6 7 8 9 10 11 12
@@ -276,6 +573,8 @@ public class DigitUtil {
         String code7 = "0-521-64176-4"; System.out.printf("%s is %s\n", code7, isValidISBN10(code7) ? "valid" : "invalid");
         System.out.printf("%d == 0b%s == 0%s == 0x%s\n", 255, stringOf(255, 2), stringOf(255, 8), stringOf(255, 16));
         System.out.printf("-100: %s; 100L: %s\n", stringOf(-100), stringOf(100L));
+        byte[] bytes = "1234567890123456,DEADbeefCAFE".getBytes();
+        System.out.printf("%d, 0x%x, 0x%x\n", parseLong(bytes, 0, 16), parseLong(bytes, 17, 12, 16), parseLong("DEADbeefCAFE", 16));
         System.out.printf("MinInt: %d = %s, MinLong: %d = %s\n", Integer.MIN_VALUE, stringOf(Integer.MIN_VALUE), Long.MIN_VALUE, stringOf(Long.MIN_VALUE));
     }
 }
\ No newline at end of file
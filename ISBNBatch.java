@@ -0,0 +1,364 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * ISBN validation and check digits of many codes at once.
+ *
+ * A code is read once, skipping hyphens and spaces, and the weighted sums
+ * of both ISBN-10 and ISBN-13 are added up on the way with weights
+ * computed from the digit count, without a branch on the position.  The
+ * number of digits then tells which of the two the code is.  An optional
+ * "ISBN" prefix is skipped, as DigitUtil.isValidISBN10 does.
+ *
+ * No exception is thrown for a bad code; a Result holds a bitmap of the
+ * valid codes and an error code for each.  Codes are processed in blocks
+ * of 64, one word of the bitmap, so that a parallel run needs no locks.
+ */
+public class ISBNBatch {
+    public static final byte OK = 0;
+    public static final byte INVALID_CHARACTER = 1;
+    public static final byte INVALID_LENGTH = 2;
+    public static final byte INVALID_CHECK_DIGIT = 3;
+
+    /** Error codes, and the valid codes as a bitmap, of a batch. */
+    public static class Result {
+        private final byte[] errors_;
+        private final long[] valid_;
+        private final char[] checkDigits_;     // null for validation
+
+        Result(int n, boolean checkDigits) {
+            errors_ = new byte[n];
+            valid_ = new long[(n + 63) >>> 6];
+            checkDigits_ = checkDigits ? new char[n] : null;
+        }
+
+        public int size() {
+            return errors_.length;
+        }
+
+        public boolean isValid(int i) {
+            return errors_[i] == OK;
+        }
+
+        /** OK, INVALID_CHARACTER, INVALID_LENGTH or INVALID_CHECK_DIGIT. */
+        public int error(int i) {
+            return errors_[i];
+        }
+
+        /**
+         * The check digit computed for the i-th code, or 0 if it has an error.
+         *
+         * @throws IllegalStateException if this is a result of validate
+         */
+        public char checkDigit(int i) {
+            if (checkDigits_ == null)
+                throw new IllegalStateException("no check digits in a result of validate");
+            return checkDigits_[i];
+        }
+
+        public int validCount() {
+            int count = 0;
+            for (long word: valid_) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+
+        /** Bit i % 64 of word i / 64 is set if the i-th code is valid. */
+        public long[] bitmap() {
+            return valid_;
+        }
+
+        public byte[] errors() {
+            return errors_;
+        }
+    }
+
+    // The state of one code after its characters are read, packed in a
+    // long: the two weighted sums, the digit count, the positions of X
+    // and whether a bad character was met.  The sums are below 2^16 for
+    // any code of a sane length, as each digit adds at most 10 * 10.
+    static long pack(int s10, int s13, int n, int xs, int bad) {
+        return (long)(s10 & 0xFFFF) | (long)(s13 & 0xFFFF) << 16 | (long)Math.min(n, 255) << 32 | (long)(xs & 0x3FFF) << 40
+             | (long)(bad != 0 ? 1 : 0) << 54;
+    }
+
+    // The weighted sums of one code, fed one character at a time.  It is
+    // the one state machine of all the scanners; the weights 10, 9, ..., 1
+    // and 1, 3, 1, 3, ... are computed from the digit count.
+    static final class Sums {
+        int s10 = 0, s13 = 0, n = 0, xs = 0, bad = 0;
+
+        void add(int c) {
+            int d = c - '0';
+            if ((char)d < 10) {
+                s10 += d * (10 - n);
+                s13 += d + (d & -(n & 1)) * 2;
+                n++;
+            }
+            else if (c == '-' || c == ' ')
+                return;
+            else if ((c | 0x20) == 'x') {
+                xs |= 1 << (n & 15);
+                s10 += 10 * (10 - n);
+                n++;
+            }
+            else
+                bad = 1;
+        }
+
+        long state() {
+            return pack(s10, s13, n, xs, bad);
+        }
+    }
+
+    static long scan(CharSequence code) {
+        int len = code.length();
+        int i = len >= 4 && code.charAt(0) == 'I' && code.charAt(1) == 'S'
+                         && code.charAt(2) == 'B' && code.charAt(3) == 'N' ? 4 : 0;
+        Sums sums = new Sums();
+        for (; i < len; i++) {
+            sums.add(code.charAt(i));
+        }
+        return sums.state();
+    }
+
+    /**
+     * Scans the line of BYTES from FROM up to its LF, or TO; a CR before
+     * the LF is ignored.  As String2int.parseLong does, the state goes to
+     * STATE[0] and the position after the line is returned.
+     */
+    static int scanLine(byte[] bytes, int from, int to, long[] state) {
+        int i = to - from >= 4 && bytes[from] == 'I' && bytes[from + 1] == 'S'
+                                && bytes[from + 2] == 'B' && bytes[from + 3] == 'N' ? from + 4 : from;
+        Sums sums = new Sums();
+        for (; i < to; i++) {
+            int c = bytes[i] & 0xFF;
+            if (c == '\n')
+                break;
+            if (c != '\r' || i + 1 < to && bytes[i + 1] != '\n')
+                sums.add(c);
+        }
+        state[0] = sums.state();
+        return i + 1;
+    }
+
+    static int scanLine(ByteBuffer buf, int from, int to, long[] state) {
+        if (buf.hasArray()) {
+            int base = buf.arrayOffset();
+            return scanLine(buf.array(), base + from, base + to, state) - base;
+        }
+        int i = to - from >= 4 && buf.get(from) == 'I' && buf.get(from + 1) == 'S'
+                                && buf.get(from + 2) == 'B' && buf.get(from + 3) == 'N' ? from + 4 : from;
+        Sums sums = new Sums();
+        for (; i < to; i++) {
+            int c = buf.get(i) & 0xFF;
+            if (c == '\n')
+                break;
+            if (c != '\r' || i + 1 < to && buf.get(i + 1) != '\n')
+                sums.add(c);
+        }
+        state[0] = sums.state();
+        return i + 1;
+    }
+
+    // the error of a complete code
+    static byte validate(long state) {
+        int n = (int)(state >>> 32 & 255);
+        int xs = (int)(state >>> 40 & 0x3FFF);
+        if ((state >>> 54 & 1) != 0)
+            return INVALID_CHARACTER;
+        if (n == 10) {
+            // X only as the check digit
+            if ((xs & ~(1 << 9)) != 0)
+                return INVALID_CHARACTER;
+            return (state & 0xFFFF) % 11 == 0 ? OK : INVALID_CHECK_DIGIT;
+        }
+        if (n == 13) {
+            if (xs != 0)
+                return INVALID_CHARACTER;
+            return (state >>> 16 & 0xFFFF) % 10 == 0 ? OK : INVALID_CHECK_DIGIT;
+        }
+        return INVALID_LENGTH;
+    }
+
+    // the check digit of a code without it, or the error as a negative value
+    static int checkDigit(long state) {
+        int n = (int)(state >>> 32 & 255);
+        int xs = (int)(state >>> 40 & 0x3FFF);
+        if ((state >>> 54 & 1) != 0 || xs != 0)
+            return -INVALID_CHARACTER;
+        if (n == 9) {
+            int d = (11 - (int)(state & 0xFFFF) % 11) % 11;
+            return d == 10 ? 'X' : '0' + d;
+        }
+        if (n == 12)
+            return '0' + (10 - (int)(state >>> 16 & 0xFFFF) % 10) % 10;
+        return -INVALID_LENGTH;
+    }
+
+    interface Block {
+        // fills in the codes 64 W .. 64 W + 63 and returns their bits of the bitmap
+        long fill(int w);
+    }
+
+    // records the outcome of the I-th code and returns its bit of the bitmap
+    static long record(Result result, int i, long state) {
+        byte error;
+        if (result.checkDigits_ != null) {
+            int d = checkDigit(state);
+            error = d < 0 ? (byte)-d : OK;
+            result.checkDigits_[i] = d < 0 ? 0 : (char)d;
+        }
+        else {
+            error = validate(state);
+        }
+        result.errors_[i] = error;
+        return (error == OK ? 1L : 0L) << i;
+    }
+
+    static Result run(Result result, boolean parallel, Block block) {
+        IntStream blocks = IntStream.range(0, result.valid_.length);
+        if (parallel)
+            blocks = blocks.parallel();
+        blocks.forEach(w -> result.valid_[w] = block.fill(w));
+        return result;
+    }
+
+    static Result run(CharSequence[] codes, boolean checkDigits, boolean parallel) {
+        Result result = new Result(codes.length, checkDigits);
+        return run(result, parallel, w -> {
+            long word = 0;
+            int end = Math.min(codes.length, (w + 1) << 6);
+            for (int i = w << 6; i < end; i++) {
+                word |= record(result, i, scan(codes[i]));
+            }
+            return word;
+        });
+    }
+
+    /** Validates each of CODES as an ISBN-10 or an ISBN-13. */
+    public static Result validate(CharSequence[] codes, boolean parallel) {
+        return run(codes, false, parallel);
+    }
+
+    public static Result validate(CharSequence[] codes) {
+        return validate(codes, false);
+    }
+
+    public static Result validate(List<? extends CharSequence> codes, boolean parallel) {
+        return validate(codes.toArray(new CharSequence[0]), parallel);
+    }
+
+    /** Validates the codes of a stream, in parallel if the stream is. */
+    public static Result validate(Stream<? extends CharSequence> codes) {
+        boolean parallel = codes.isParallel();
+        return validate(codes.toArray(CharSequence[]::new), parallel);
+    }
+
+    /** Validates the lines of BUF from its position to its limit; a CR before LF is ignored. */
+    public static Result validate(ByteBuffer buf, boolean parallel) {
+        return lines(buf, false, parallel);
+    }
+
+    /** Computes the check digit of each of CODES, which have 9 or 12 digits. */
+    public static Result checkDigits(CharSequence[] codes, boolean parallel) {
+        return run(codes, true, parallel);
+    }
+
+    public static Result checkDigits(Stream<? extends CharSequence> codes) {
+        boolean parallel = codes.isParallel();
+        return checkDigits(codes.toArray(CharSequence[]::new), parallel);
+    }
+
+    public static Result checkDigits(ByteBuffer buf, boolean parallel) {
+        return lines(buf, true, parallel);
+    }
+
+    static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+    static final long LFS = 0x0A0A0A0A0A0A0A0AL;
+
+    // 0x80 in each byte of X that is 0, and 0 elsewhere (as in MappedCSV)
+    static long zeroBytes(long x) {
+        return ~(((x & LOW7) + LOW7) | x | LOW7);
+    }
+
+    private static Result lines(ByteBuffer buf, boolean checkDigits, boolean parallel) {
+        ByteBuffer le = buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int from = buf.position();
+        int to = buf.limit();
+        // Counts LFs 8 bytes at a time and notes where every 64th line,
+        // the first of a block, starts; only a word with such an LF is
+        // looked into.
+        int[] starts = new int[16];
+        starts[0] = from;
+        int lfs = 0;
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long m = zeroBytes(le.getLong(i) ^ LFS);
+            int count = Long.bitCount(m);
+            if ((lfs & 63) + count < 64) {
+                lfs += count;
+                continue;
+            }
+            for (; m != 0; m &= m - 1) {
+                if ((++lfs & 63) == 0) {
+                    if (lfs >>> 6 == starts.length)
+                        starts = Arrays.copyOf(starts, 2 * starts.length);
+                    starts[lfs >>> 6] = i + (Long.numberOfTrailingZeros(m) >>> 3) + 1;
+                }
+            }
+        }
+        for (; i < to; i++) {
+            if (le.get(i) == '\n' && (++lfs & 63) == 0) {
+                if (lfs >>> 6 == starts.length)
+                    starts = Arrays.copyOf(starts, 2 * starts.length);
+                starts[lfs >>> 6] = i + 1;
+            }
+        }
+        int n = lfs + (to > from && le.get(to - 1) != '\n' ? 1 : 0);
+
+        int[] blockStarts = starts;
+        Result result = new Result(n, checkDigits);
+        return run(result, parallel, w -> {
+            long[] state = new long[1];
+            long word = 0;
+            int end = Math.min(n, (w + 1) << 6);
+            int s = blockStarts[w];
+            for (int k = w << 6; k < end; k++) {
+                s = scanLine(buf, s, to, state);
+                word |= record(result, k, state[0]);
+            }
+            return word;
+        });
+    }
+
+    public static void main(String[] args) {
+        String[] codes = {
+            "4-9876-5432-6", "ISBN0-521-64176-4", "978-4-00-310101-8", "080442957X",
+            "4-9876-5432-7", "4-9876-X432-6", "978-4-00-310101", "978-4-00-310101-8?"
+        };
+        String[] names = { "OK", "invalid character", "invalid length", "invalid check digit" };
+        Result r = validate(codes);
+        for (int i = 0; i < codes.length; i++) {
+            System.out.printf("%-20s %s%n", codes[i], names[r.error(i)]);
+        }
+        System.out.printf("%d valid, bitmap %s, from a parallel stream %d%n", r.validCount(),
+                          Long.toBinaryString(r.bitmap()[0]), validate(Arrays.stream(codes).parallel()).validCount());
+
+        Result c = checkDigits(new String[] { "4-9876-5432-", "0-8044-2957", "978-4-00-310101" }, false);
+        System.out.printf("check digits: %c %c %c%n", c.checkDigit(0), c.checkDigit(1), c.checkDigit(2));
+
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            lines.append(codes[i % codes.length]).append(i % 2 == 0 ? "\n" : "\r\n");
+        }
+        ByteBuffer buf = ByteBuffer.wrap(lines.toString().getBytes());
+        System.out.printf("%d of %d lines valid, in parallel %d%n", validate(buf, false).validCount(),
+                          validate(buf, false).size(), validate(buf, true).validCount());
+    }
+}
@@ -1,6 +1,8 @@
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
 
 enum State { START, ZERO, DEC, OCT, X, HEX } 
 
@@ -30,7 +32,87 @@ public class String2int {
      * @return the long value of the number
      */
     public static long string2long(String digits) {
-        return parseLong(new StringReader(digits));
+        State st = State.START;
+        long result = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            int c = digits.charAt(i);
+            State next = next(st, c);
+            if (next == null)
+                break;
+            result = accumulate(next, result, c);
+            st = next;
+        }
+        return result;
+    }
+
+    static int hexValue(int c) {
+        if ('0' <= c && c <= '9')
+            return c - '0';
+        else if ('A' <= c && c <= 'F')
+            return c - 'A' + 10;
+        else if ('a' <= c && c <= 'f')
+            return c - 'a' + 10;
+        else
+            return -1;
+    }
+
+    /**
+     * The transition of the state machine shared by all the parsers.
+     *
+     * @param st the current state
+     * @param c the next character
+     * @return the next state, or null if C is not a part of the literal
+     * @throws NumberFormatException if C does not follow "0x"
+     */
+    static State next(State st, int c) {
+        switch (st) {
+            case START:
+                if (c == '0')
+                    return State.ZERO;
+                return '0' <= c && c <= '9' ? State.DEC : null;
+            case ZERO:
+                if (c == 'x' || c == 'X')
+                    return State.X;
+                return '0' <= c && c <= '7' ? State.OCT : null;
+            case DEC:
+                return '0' <= c && c <= '9' ? State.DEC : null;
+            case OCT:
+                return '0' <= c && c <= '7' ? State.OCT : null;
+            case X:
+                if (hexValue(c) >= 0)
+                    return State.HEX;
+                throw new NumberFormatException("0x" + (char)c);
+            case HEX:
+                return hexValue(c) >= 0 ? State.HEX : null;
+            default:
+                throw new RuntimeException("parseLong internal error");
+        }
+    }
+
+    /**
+     * Adds the digit C to RESULT in the radix of the state ST that C led to.
+     * A decimal literal must not exceed Long.MAX_VALUE; an octal or a
+     * hexadecimal one may use all the 64 bits, as in Java source.
+     *
+     * @throws NumberFormatException if the literal does not fit in a long
+     */
+    static long accumulate(State st, long result, int c) {
+        switch (st) {
+            case DEC:
+                if (result >= Long.MAX_VALUE / 10 && (result > Long.MAX_VALUE / 10 || c > '7'))
+                    throw new NumberFormatException("out of range: " + result + (char)c + "...");
+                return 10 * result + (c - '0');
+            case OCT:
+                if (result >>> 61 != 0)
+                    throw new NumberFormatException("out of range: 0" + Long.toOctalString(result) + (char)c + "...");
+                return 8 * result + (c - '0');
+            case HEX:
+                if (result >>> 60 != 0)
+                    throw new NumberFormatException("out of range: 0x" + Long.toHexString(result) + (char)c + "...");
+                return 16 * result + hexValue(c);
+            default:
+                return result;
+        }
     }
 
     /**
@@ -49,6 +131,7 @@ public class String2int {
     /**
      * Parses a numeric literal from a Reader and returns its long value.
      * The numeric literal can be in decimal, octal, or hexadecimal format.
+     * The character after the literal is read and lost.
      *
      * @param r the Reader containing the numeric literal
      * @return the long value of the numeric literal
@@ -56,94 +139,15 @@ public class String2int {
     public static long parseLong(Reader r) {
         State st = State.START; 
         long result = 0;
-        int c = 0;
         final int EOF = -1;
         
         try {
-            while ((c = r.read()) != EOF) {
-                switch (st) {
-                    case START:
-                        if (c == '0') {
-                            st = State.ZERO;
-                            continue;
-                        }
-                        else if ('0' <= c && c <= '9') {
-                            st = State.DEC;
-                            result = c - '0';
-                            continue;
-                        }
-                        else {
-                            return result;
-                        }
-                    case ZERO:
-                        if (c == 'x' || c == 'X') {
-                            st = State.X;
-                            continue;
-                        }
-                        else if ('0' <= c && c <= '7') {
-                            st = State.OCT;
-                            result = c - '0';
-                            continue;
-                        }
-                        else {
-                            return result;
-                        }
-                    case DEC:
-                        if ('0' <= c && c <= '9') {
-                            result *= 10;
-                            result += c - '0';
-                            continue;
-                        }
-                        else {
-                            return result;
-                        }
-                    case OCT:
-                        if ('0' <= c && c <= '7') {
-                            result *= 8;
-                            result += c - '0';
-                            continue;
-                        }
-                        else {
-                            return result;
-                        }
-                    case X:
-                        if ('0' <= c && c <= '9') {
-                            result = c - '0';
-                            continue;
-                        }
-                        else if ('A' <= c && c <= 'F') {
-                            result = c - 'A' + 10;
-                            continue;
-                        }
-                        else if ('a' <= c && c <= 'f') {
-                            result = c - 'a' + 10;
-                            continue;
-                        }
-                        else {
-                            throw new NumberFormatException("0x"+c);
-                        }
-                    case HEX:
-                        if ('0' <= c && c <= '9') {
-                            result *= 16;
-                            result += c - '0';
-                            continue;
-                        }
-                        else if ('A' <= c && c <= 'F') {
-                            result *= 16;
-                            result += c - 'A' + 10;
-                            continue;
-                        }
-                        else if ('a' <= c && c <= 'f') {
-                            result *= 16;
-                            result += c - 'a' + 10;
-                            continue;
-                        }
-                        else {
-                            return result;
-                        }
-                    default:
-                        throw new RuntimeException("parseLong internal error");
-                }
+            for (int c; (c = r.read()) != EOF; ) {
+                State next = next(st, c);
+                if (next == null)
+                    return result;
+                result = accumulate(next, result, c);
+                st = next;
             }
         } catch (IOException e) {
             throw new NumberFormatException();
@@ -152,10 +156,112 @@ public class String2int {
         return result;
     }
 
+    /**
+     * Parses a numeric literal in SEQ from OFF, but not beyond LIMIT.
+     * Nothing is allocated, so that many literals in one buffer are parsed
+     * one after another from the returned positions.
+     *
+     * @param seq the characters containing the literal
+     * @param off the position of the literal
+     * @param limit the end of the characters to look at
+     * @param value value[0] receives the value of the literal
+     * @return the position after the literal
+     */
+    public static int parseLong(CharSequence seq, int off, int limit, long[] value) {
+        Objects.checkFromToIndex(off, limit, seq.length());
+        State st = State.START;
+        long result = 0;
+        int i = off;
+        for (; i < limit; i++) {
+            int c = seq.charAt(i);
+            State next = next(st, c);
+            if (next == null)
+                break;
+            result = accumulate(next, result, c);
+            st = next;
+        }
+        value[0] = result;
+        return i;
+    }
+
+    /** parseLong of the characters of an array. */
+    public static int parseLong(char[] chars, int off, int limit, long[] value) {
+        Objects.checkFromToIndex(off, limit, chars.length);
+        State st = State.START;
+        long result = 0;
+        int i = off;
+        for (; i < limit; i++) {
+            int c = chars[i];
+            State next = next(st, c);
+            if (next == null)
+                break;
+            result = accumulate(next, result, c);
+            st = next;
+        }
+        value[0] = result;
+        return i;
+    }
+
+    /** parseLong of ASCII bytes. */
+    public static int parseLong(byte[] bytes, int off, int limit, long[] value) {
+        Objects.checkFromToIndex(off, limit, bytes.length);
+        State st = State.START;
+        long result = 0;
+        int i = off;
+        for (; i < limit; i++) {
+            int c = bytes[i] & 0xFF;
+            State next = next(st, c);
+            if (next == null)
+                break;
+            result = accumulate(next, result, c);
+            st = next;
+        }
+        value[0] = result;
+        return i;
+    }
+
+    /** parseLong of ASCII bytes at absolute positions of a buffer, which keeps its position. */
+    public static int parseLong(ByteBuffer buf, int off, int limit, long[] value) {
+        Objects.checkFromToIndex(off, limit, buf.limit());
+        State st = State.START;
+        long result = 0;
+        int i = off;
+        for (; i < limit; i++) {
+            int c = buf.get(i) & 0xFF;
+            State next = next(st, c);
+            if (next == null)
+                break;
+            result = accumulate(next, result, c);
+            st = next;
+        }
+        value[0] = result;
+        return i;
+    }
+
     public static void main(String[] args) {
         String[] testData = { "0", "123", "077", "0xff", "0XFF" };
         for (String digit: testData) {
             System.out.printf("%s = %d%n", digit, string2int(digit));
         }
+
+        String list = "10, 0x1F, 017, 0, 42";
+        long[] value = new long[1];
+        for (int pos = 0; pos < list.length(); pos += 2) {
+            pos = parseLong(list, pos, list.length(), value);
+            System.out.print(value[0] + " ");
+        }
+        System.out.println();
+
+        System.out.println(parseLong(new StringReader("0xff 12")));
+
+        String[] limits = { "9223372036854775807", "0xFFFFFFFFFFFFFFFF", "01777777777777777777777",
+                            "9223372036854775808", "0x10000000000000000", "02000000000000000000000" };
+        for (String digit: limits) {
+            try {
+                System.out.printf("%s = %d%n", digit, string2long(digit));
+            } catch (NumberFormatException e) {
+                System.out.println(e.getMessage());
+            }
+        }
     }
 }
@@ -0,0 +1,84 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Variable length array made of fixed size chunks.
+ *
+ * VArray copies all the elements whenever it doubles.  ChunkedVArray adds
+ * a chunk of 2^chunkBits elements instead and never moves the elements;
+ * only the spine, an array of 1/2^chunkBits as many references to the
+ * chunks, is copied when it doubles.  The n-th element is found at
+ * spine_[n >>> chunkBits][n & chunkMask].
+ */
+public class ChunkedVArray<T> extends AbstractList<T> {
+    protected final int chunkBits;
+    protected final int chunkMask;
+    protected T[][] spine_;
+    protected int chunks = 0;
+    protected int limit = 0;
+
+    public ChunkedVArray(int chunkBits) {
+        if (chunkBits < 0 || 30 < chunkBits)
+            throw new IllegalArgumentException("chunkBits: " + chunkBits);
+        this.chunkBits = chunkBits;
+        this.chunkMask = (1 << chunkBits) - 1;
+        spine_ = (T[][])new Object[4][];
+    }
+
+    public ChunkedVArray() {
+        this(12);
+    }
+
+    public int capacity() {
+        return chunks << chunkBits;
+    }
+
+    public int size() {
+        return limit;
+    }
+
+    public T get(int n) {
+        Objects.checkIndex(n, limit);
+        return spine_[n >>> chunkBits][n & chunkMask];
+    }
+
+    public T set(int n, T x) {
+        Objects.checkIndex(n, limit);
+        T[] chunk = spine_[n >>> chunkBits];
+        T before = chunk[n & chunkMask];
+        chunk[n & chunkMask] = x;
+        return before;
+    }
+
+    public boolean add(T x) {
+        if (limit == capacity()) {
+            if (chunks == spine_.length)
+                spine_ = Arrays.copyOf(spine_, 2 * chunks);
+            spine_[chunks++] = (T[])new Object[chunkMask + 1];
+        }
+
+        spine_[limit >>> chunkBits][limit & chunkMask] = x;
+        limit++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        spine_ = (T[][])new Object[4][];
+        chunks = 0;
+        limit = 0;
+        modCount++;
+    }
+
+    public static void main(String[] args) {
+        ChunkedVArray<Integer> xs = new ChunkedVArray<>(2);
+        for (int i = 0; i < 10; i++) {
+            xs.add(1 << i);
+        }
+        System.out.println(xs + " size: " + xs.size() + ", capacity: " + xs.capacity());
+        xs.set(9, 0);
+        System.out.println(xs.subList(7, 10));
+    }
+}
@@ -0,0 +1,105 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Variable length array to which threads append concurrently.
+ *
+ * add reserves an index by fetch-and-add on limit, so appending takes no
+ * lock.  The elements are kept in segments of doubling size: segment k
+ * holds FIRST * 2^k elements, so growing never copies.  The thread that
+ * first needs a segment allocates it and publishes it in the spine by CAS;
+ * a thread that loses the race uses the winner's segment.
+ *
+ * get never waits.  An index reserved by an add that has not stored its
+ * element yet reads as null.
+ */
+public class ConcurrentVArray<T> extends AbstractList<T> {
+    static final int FIRST_BITS = 4;
+    static final int FIRST = 1 << FIRST_BITS;
+    static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    protected final AtomicReferenceArray<Object[]> spine_ =
+        new AtomicReferenceArray<>(32 - FIRST_BITS);
+    protected final AtomicInteger limit = new AtomicInteger(0);
+
+    public ConcurrentVArray() {
+    }
+
+    public int size() {
+        return limit.get();
+    }
+
+    // Index i lives in segment k = log2(i + FIRST) - FIRST_BITS
+    // at the offset (i + FIRST) - 2^log2(i + FIRST).
+    private static int segmentOf(int i) {
+        return 31 - Integer.numberOfLeadingZeros(i + FIRST) - FIRST_BITS;
+    }
+
+    private static int offsetOf(int i) {
+        return (i + FIRST) - Integer.highestOneBit(i + FIRST);
+    }
+
+    private Object[] segment(int k) {
+        Object[] seg = spine_.get(k);
+        if (seg == null) {
+            Object[] created = new Object[FIRST << k];
+            seg = spine_.compareAndExchange(k, null, created);
+            if (seg == null)
+                seg = created;
+        }
+        return seg;
+    }
+
+    public T get(int n) {
+        if (n < 0 || n >= limit.get())
+            throw new IndexOutOfBoundsException("index: " + n);
+
+        Object[] seg = spine_.get(segmentOf(n));
+        return seg == null ? null : (T)SLOT.getAcquire(seg, offsetOf(n));
+    }
+
+    public T set(int n, T x) {
+        if (n < 0 || n >= limit.get())
+            throw new IndexOutOfBoundsException("index: " + n);
+
+        return (T)SLOT.getAndSetRelease(segment(segmentOf(n)), offsetOf(n), x);
+    }
+
+    public boolean add(T x) {
+        int n = limit.getAndIncrement();
+        if (n < 0 || n > Integer.MAX_VALUE - FIRST) {
+            limit.getAndDecrement();
+            throw new IllegalStateException("too many elements");
+        }
+
+        SLOT.setRelease(segment(segmentOf(n)), offsetOf(n), x);
+        return true;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        ConcurrentVArray<Integer> xs = new ConcurrentVArray<>();
+        Thread[] producers = new Thread[4];
+        for (int t = 0; t < producers.length; t++) {
+            final int base = t * 100000;
+            producers[t] = new Thread(() -> {
+                for (int i = base; i < base + 100000; i++) {
+                    xs.add(i);
+                }
+            });
+            producers[t].start();
+        }
+        for (Thread p: producers) {
+            p.join();
+        }
+
+        long sum = 0;
+        for (int x: xs) {
+            sum += x;
+        }
+        System.out.printf("size: %d, sum: %d (expected %d)%n",
+                          xs.size(), sum, 400000L * 399999 / 2);
+    }
+}
@@ -0,0 +1,92 @@
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.DoubleStream;
+
+/**
+ * Variable length array of double.
+ *
+ * It grows as VArray does, doubling the capacity, but it keeps the
+ * elements in a double[] instead of boxing them.
+ */
+public class DoubleVArray extends PrimitiveVArray {
+    protected double[] array_;
+
+    public DoubleVArray(int n) {
+        array_ = new double[n];
+    }
+
+    public DoubleVArray() {
+        this(10);
+    }
+
+    public int capacity() {
+        return array_.length;
+    }
+
+    Object array() {
+        return array_;
+    }
+
+    void resize(int n) {
+        array_ = Arrays.copyOf(array_, n);
+    }
+
+    public double get(int n) {
+        Objects.checkIndex(n, limit);
+        return array_[n];
+    }
+
+    public double set(int n, double x) {
+        Objects.checkIndex(n, limit);
+        double before = array_[n];
+        array_[n] = x;
+        return before;
+    }
+
+    public boolean add(double x) {
+        reserve(1);
+        array_[limit++] = x;
+        return true;
+    }
+
+    public void addAll(double[] xs, int off, int len) {
+        append(xs, xs.length, off, len);
+    }
+
+    public void addAll(double[] xs) {
+        addAll(xs, 0, xs.length);
+    }
+
+    public double[] toArray() {
+        return Arrays.copyOf(array_, limit);
+    }
+
+    public void sort() {
+        Arrays.sort(array_, 0, limit);
+    }
+
+    // The array must be sorted; see Arrays.binarySearch for the result.
+    public int binarySearch(double x) {
+        return Arrays.binarySearch(array_, 0, limit, x);
+    }
+
+    public DoubleStream stream() {
+        return Arrays.stream(array_, 0, limit);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    public static void main(String[] args) {
+        DoubleVArray xs = new DoubleVArray();
+        xs.add(0.5);
+        xs.add(-1.25);
+        xs.add(4);
+        xs.addAll(new double[] { 3, 2.5, 1e3, 7 }, 1, 2);
+        System.out.println(xs);
+        xs.sort();
+        System.out.println(xs + " index of 4: " + xs.binarySearch(4.0) + ", sum: " + xs.stream().sum());
+    }
+}
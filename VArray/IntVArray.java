@@ -0,0 +1,92 @@
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Variable length array of int.
+ *
+ * It grows as VArray does, doubling the capacity, but it keeps the
+ * elements in an int[] instead of boxing them.
+ */
+public class IntVArray extends PrimitiveVArray {
+    protected int[] array_;
+
+    public IntVArray(int n) {
+        array_ = new int[n];
+    }
+
+    public IntVArray() {
+        this(10);
+    }
+
+    public int capacity() {
+        return array_.length;
+    }
+
+    Object array() {
+        return array_;
+    }
+
+    void resize(int n) {
+        array_ = Arrays.copyOf(array_, n);
+    }
+
+    public int get(int n) {
+        Objects.checkIndex(n, limit);
+        return array_[n];
+    }
+
+    public int set(int n, int x) {
+        Objects.checkIndex(n, limit);
+        int before = array_[n];
+        array_[n] = x;
+        return before;
+    }
+
+    public boolean add(int x) {
+        reserve(1);
+        array_[limit++] = x;
+        return true;
+    }
+
+    public void addAll(int[] xs, int off, int len) {
+        append(xs, xs.length, off, len);
+    }
+
+    public void addAll(int[] xs) {
+        addAll(xs, 0, xs.length);
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(array_, limit);
+    }
+
+    public void sort() {
+        Arrays.sort(array_, 0, limit);
+    }
+
+    // The array must be sorted; see Arrays.binarySearch for the result.
+    public int binarySearch(int x) {
+        return Arrays.binarySearch(array_, 0, limit, x);
+    }
+
+    public IntStream stream() {
+        return Arrays.stream(array_, 0, limit);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    public static void main(String[] args) {
+        IntVArray xs = new IntVArray();
+        xs.add(8);
+        xs.add(1);
+        xs.add(4);
+        xs.addAll(new int[] { 3, 2, 5, 7 }, 1, 2);
+        System.out.println(xs);
+        xs.sort();
+        System.out.println(xs + " index of 4: " + xs.binarySearch(4) + ", sum: " + xs.stream().sum());
+    }
+}
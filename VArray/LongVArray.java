@@ -0,0 +1,92 @@
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.LongStream;
+
+/**
+ * Variable length array of long.
+ *
+ * It grows as VArray does, doubling the capacity, but it keeps the
+ * elements in a long[] instead of boxing them.
+ */
+public class LongVArray extends PrimitiveVArray {
+    protected long[] array_;
+
+    public LongVArray(int n) {
+        array_ = new long[n];
+    }
+
+    public LongVArray() {
+        this(10);
+    }
+
+    public int capacity() {
+        return array_.length;
+    }
+
+    Object array() {
+        return array_;
+    }
+
+    void resize(int n) {
+        array_ = Arrays.copyOf(array_, n);
+    }
+
+    public long get(int n) {
+        Objects.checkIndex(n, limit);
+        return array_[n];
+    }
+
+    public long set(int n, long x) {
+        Objects.checkIndex(n, limit);
+        long before = array_[n];
+        array_[n] = x;
+        return before;
+    }
+
+    public boolean add(long x) {
+        reserve(1);
+        array_[limit++] = x;
+        return true;
+    }
+
+    public void addAll(long[] xs, int off, int len) {
+        append(xs, xs.length, off, len);
+    }
+
+    public void addAll(long[] xs) {
+        addAll(xs, 0, xs.length);
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(array_, limit);
+    }
+
+    public void sort() {
+        Arrays.sort(array_, 0, limit);
+    }
+
+    // The array must be sorted; see Arrays.binarySearch for the result.
+    public int binarySearch(long x) {
+        return Arrays.binarySearch(array_, 0, limit, x);
+    }
+
+    public LongStream stream() {
+        return Arrays.stream(array_, 0, limit);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    public static void main(String[] args) {
+        LongVArray xs = new LongVArray();
+        xs.add(8);
+        xs.add(1);
+        xs.add(4);
+        xs.addAll(new long[] { 3, 2, 5, 7 }, 1, 2);
+        System.out.println(xs);
+        xs.sort();
+        System.out.println(xs + " index of 4: " + xs.binarySearch(4) + ", sum: " + xs.stream().sum());
+    }
+}
@@ -0,0 +1,268 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Variable length array of 64 bit numbers outside the Java heap.
+ *
+ * The elements are kept in regions of 2^regionBits elements, either direct
+ * buffers or consecutive mappings of a file.  The array grows by allocating
+ * or mapping one more region, so the elements never move, and a vector
+ * larger than 2GB is no problem.  The elements are long values; the
+ * double accessors store the bits of doubles.
+ *
+ * A file mapped by map() holds the elements themselves in little endian,
+ * so it is saved and loaded without copying.  They follow a header of
+ * HEADER bytes, the number of elements, which force() and close() write;
+ * the file itself also holds the unused rest of the last region until
+ * close() cuts it off.  So the file opens again with the elements as of
+ * the last force() or close(), even if close() never came.
+ */
+public class OffHeapVArray implements Closeable {
+    protected final int regionBits;
+    protected final int regionMask;
+    protected ByteBuffer[] regions_ = new ByteBuffer[4];
+    protected int nRegions = 0;
+    protected long limit = 0;
+
+    static final int HEADER = Long.BYTES;
+
+    private final FileChannel channel_;     // null unless mapped from a file
+    private MappedByteBuffer header_;
+
+    private OffHeapVArray(int regionBits, FileChannel channel) {
+        if (regionBits < 0 || 27 < regionBits)
+            throw new IllegalArgumentException("regionBits: " + regionBits);
+        this.regionBits = regionBits;
+        this.regionMask = (1 << regionBits) - 1;
+        this.channel_ = channel;
+    }
+
+    public OffHeapVArray(int regionBits) {
+        this(regionBits, null);
+    }
+
+    public OffHeapVArray() {
+        this(17);
+    }
+
+    /** Maps the file PATH; the elements already in it are the initial contents. */
+    public static OffHeapVArray map(Path path, int regionBits) throws IOException {
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE,
+                                          StandardOpenOption.READ, StandardOpenOption.WRITE);
+        OffHeapVArray xs = new OffHeapVArray(regionBits, ch);
+        long size = ch.size();
+        xs.header_ = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+        xs.header_.order(ByteOrder.LITTLE_ENDIAN);
+        long n = 0;
+        if (size != 0) {
+            n = xs.header_.getLong(0);
+            if (size < HEADER || n < 0 || n > (size - HEADER) / Long.BYTES) {
+                ch.close();
+                throw new IOException(path + ": a header of " + n + " elements in " + size + " bytes");
+            }
+        }
+        while (xs.capacity() < n) {
+            xs.grow();
+        }
+        xs.limit = n;
+        return xs;
+    }
+
+    public static OffHeapVArray map(Path path) throws IOException {
+        return map(path, 20);
+    }
+
+    public long capacity() {
+        return (long)nRegions << regionBits;
+    }
+
+    public long size() {
+        return limit;
+    }
+
+    private void grow() throws IOException {
+        if (nRegions == regions_.length)
+            regions_ = Arrays.copyOf(regions_, 2 * nRegions);
+
+        long bytes = (long)Long.BYTES << regionBits;
+        ByteBuffer region;
+        if (channel_ == null)
+            region = ByteBuffer.allocateDirect((int)bytes);
+        else
+            region = channel_.map(FileChannel.MapMode.READ_WRITE, HEADER + nRegions * bytes, bytes);
+        regions_[nRegions++] = region.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private ByteBuffer region(long n) {
+        return regions_[(int)(n >>> regionBits)];
+    }
+
+    private int offset(long n) {
+        return ((int)n & regionMask) << 3;
+    }
+
+    public long getLong(long n) {
+        Objects.checkIndex(n, limit);
+        return region(n).getLong(offset(n));
+    }
+
+    public void setLong(long n, long x) {
+        Objects.checkIndex(n, limit);
+        region(n).putLong(offset(n), x);
+    }
+
+    public double getDouble(long n) {
+        return Double.longBitsToDouble(getLong(n));
+    }
+
+    public void setDouble(long n, double x) {
+        setLong(n, Double.doubleToRawLongBits(x));
+    }
+
+    public boolean add(long x) {
+        if (limit == capacity()) {
+            try {
+                grow();
+            } catch (IOException e) {
+                throw new IllegalStateException("cannot extend the mapping", e);
+            }
+        }
+        region(limit).putLong(offset(limit), x);
+        limit++;
+        return true;
+    }
+
+    public boolean addDouble(double x) {
+        return add(Double.doubleToRawLongBits(x));
+    }
+
+    public void addAll(long[] xs, int off, int len) {
+        Objects.checkFromIndexSize(off, len, xs.length);
+        for (int i = off; i < off + len; i++) {
+            add(xs[i]);
+        }
+    }
+
+    /**
+     * The raw contents: views of the regions, each limited to the elements
+     * in use.  They share the memory with this array.
+     */
+    public ByteBuffer[] segments() {
+        int n = (int)((limit + regionMask) >>> regionBits);
+        ByteBuffer[] result = new ByteBuffer[n];
+        for (int i = 0; i < n; i++) {
+            long rest = limit - ((long)i << regionBits);
+            int elements = (int)Math.min(rest, regionMask + 1L);
+            result[i] = regions_[i].duplicate().order(ByteOrder.LITTLE_ENDIAN).limit(elements << 3);
+        }
+        return result;
+    }
+
+    /** Writes the elements straight from the off-heap memory. */
+    public void writeTo(WritableByteChannel ch) throws IOException {
+        for (ByteBuffer segment: segments()) {
+            while (segment.hasRemaining()) {
+                ch.write(segment);
+            }
+        }
+    }
+
+    /** Appends the elements read from CH until its end. */
+    public void readFrom(ReadableByteChannel ch) throws IOException {
+        for (;;) {
+            if (limit == capacity())
+                grow();
+            ByteBuffer dst = region(limit).duplicate();
+            int start = offset(limit);
+            dst.position(start);
+            if (ch.read(dst) < 0)
+                break;
+            // complete a partial element before counting it
+            while ((dst.position() - start) % Long.BYTES != 0) {
+                if (ch.read(dst) < 0)
+                    throw new IOException("incomplete element at the end");
+            }
+            limit += (dst.position() - start) / Long.BYTES;
+        }
+    }
+
+    /** For a mapped array, saves the elements and their number. */
+    public void force() {
+        if (channel_ == null)
+            return;
+        for (int i = 0; i < nRegions; i++) {
+            ((MappedByteBuffer)regions_[i]).force();
+        }
+        // the number after the elements it counts
+        header_.putLong(0, limit);
+        header_.force();
+    }
+
+    /** For a mapped array, saves the elements and cuts the file to their size. */
+    @Override
+    public void close() throws IOException {
+        if (channel_ == null)
+            return;
+        force();
+        channel_.truncate(HEADER + limit * Long.BYTES);
+        channel_.close();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (long i = 0; i < limit; i++) {
+            if (i > 0)
+                sb.append(", ");
+            sb.append(getLong(i));
+        }
+        return sb.append(']').toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path path = Files.createTempFile("vector", ".bin");
+        try (OffHeapVArray xs = OffHeapVArray.map(path, 4)) {
+            for (long i = 0; i < 40; i++) {
+                xs.add(i * i);
+            }
+        }
+        try (OffHeapVArray xs = OffHeapVArray.map(path, 4)) {
+            System.out.println(xs.size() + " elements: " + xs);
+        }
+
+        // saved by force() alone: the file is as long as 3 regions of 16,
+        // yet it opens again with the 41 elements
+        try (OffHeapVArray xs = OffHeapVArray.map(path, 4)) {
+            xs.add(-1);
+            xs.force();
+            try (OffHeapVArray ys = OffHeapVArray.map(path, 4)) {
+                System.out.println(ys.size() + " elements in " + Files.size(path) + " bytes, the last: " + ys.getLong(40));
+            }
+        }
+
+        OffHeapVArray ys = new OffHeapVArray();
+        ys.addDouble(0.5);
+        ys.addDouble(Math.PI);
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.WRITE,
+                                               StandardOpenOption.TRUNCATE_EXISTING)) {
+            ys.writeTo(ch);
+        }
+        OffHeapVArray zs = new OffHeapVArray();
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            zs.readFrom(ch);
+        }
+        System.out.println(zs.getDouble(0) + " " + zs.getDouble(1));
+        Files.delete(path);
+    }
+}
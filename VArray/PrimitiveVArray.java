@@ -0,0 +1,50 @@
+import java.util.Objects;
+
+/**
+ * Growth and bulk copying shared by IntVArray, LongVArray and DoubleVArray.
+ *
+ * A subclass keeps the elements in an array of its own type, so that its
+ * get/set/add index it directly, and resizes it when asked; the count,
+ * the doubling policy and the bounds of a bulk append are here.
+ */
+abstract class PrimitiveVArray {
+    protected int limit = 0;
+
+    public abstract int capacity();
+
+    // the array of the elements, for System.arraycopy
+    abstract Object array();
+
+    // copies the elements into a new array of N elements
+    abstract void resize(int n);
+
+    public int size() {
+        return limit;
+    }
+
+    public boolean isEmpty() {
+        return limit == 0;
+    }
+
+    public void clear() {
+        limit = 0;
+    }
+
+    // makes room for N more elements, doubling the capacity as needed
+    void reserve(int n) {
+        if (limit + n <= capacity())
+            return;
+        int cap = Math.max(2 * limit, 1);
+        while (cap < limit + n)
+            cap *= 2;
+        resize(cap);
+    }
+
+    // appends LEN elements of XS, an array of the same type of LENGTH elements, from OFF
+    void append(Object xs, int length, int off, int len) {
+        Objects.checkFromIndexSize(off, len, length);
+        reserve(len);
+        System.arraycopy(xs, off, array(), limit, len);
+        limit += len;
+    }
+}